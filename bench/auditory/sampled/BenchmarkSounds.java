@@ -0,0 +1,67 @@
+package auditory.sampled;
+
+import java.util.Random;
+
+/**
+ * A utility class that creates the BufferedSound objects used
+ * by the benchmarks
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class BenchmarkSounds
+{
+    /**
+     * Create a BufferedSound containing (reproducible) noise
+     *
+     * @param samples    The number of samples per channel
+     * @param channels   The number of channels
+     * @param seed       The seed for the random number generator
+     * @return           The BufferedSound
+     */
+    public static BufferedSound createNoise(int samples, int channels,
+                                            long seed)
+    {
+       BufferedSound     sound;
+       double[]          signal;
+       Random            rng;
+
+       rng   = new Random(seed);
+       sound = new BufferedSound(44100.0f);
+       for (int c=0; c<channels; c++)
+       {
+          signal = new double[samples];
+          for (int i=0; i<samples; i++)
+          {
+             signal[i] = (rng.nextDouble()*2.0 - 1.0) * 16000.0;
+          }
+          sound.addChannel(signal);
+       }
+
+       return sound;
+    }
+
+    /**
+     * Create the weights for a (windowed) low-pass FIRFilter
+     *
+     * @param length   The number of weights
+     * @return         The FIRFilter
+     */
+    public static FIRFilter createLowPass(int length)
+    {
+       double     d;
+       double[]   weights;
+
+       weights = new double[length];
+       for (int k=0; k<length; k++)
+       {
+          d = k - (length-1)/2.0;
+          if (d == 0.0) weights[k] = 0.25;
+          else          weights[k] = Math.sin(0.25*Math.PI*d)/(Math.PI*d);
+
+          weights[k] *= 0.54 - 0.46*Math.cos(2.0*Math.PI*k/Math.max(1, length-1));
+       }
+
+       return new FIRFilter(weights);
+    }
+}
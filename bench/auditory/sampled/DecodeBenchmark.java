@@ -0,0 +1,63 @@
+package auditory.sampled;
+
+import java.io.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for the 8-bit and 16-bit PCM decoders in
+ * BufferedSoundFactory (i.e., createBufferedSound(AudioInputStream))
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark
+{
+    @Param({"44100", "441000"})
+    public int                    samples;
+
+    @Param({"1", "2"})
+    public int                    channels;
+
+    // The bit depth and (for 16-bit samples) the byte order; 8-bit
+    // samples have no byte order, so they are only run once
+    @Param({"8", "16LE", "16BE"})
+    public String                 encoding;
+
+    private AudioFormat           format;
+    private BufferedSoundFactory  factory;
+    private byte[]                rawBytes;
+
+    /**
+     * Create the raw PCM bytes
+     */
+    @Setup
+    public void setup()
+    {
+       format   = new AudioFormat(44100.0f, encoding.startsWith("16") ? 16 : 8,
+                                  channels, true, encoding.endsWith("BE"));
+       rawBytes = new byte[samples * format.getFrameSize()];
+       new Random(1L).nextBytes(rawBytes);
+       factory  = new BufferedSoundFactory();
+    }
+
+    @Benchmark
+    public BufferedSound decode(SampleCounter counter)
+                         throws IOException, UnsupportedAudioFileException
+    {
+       AudioInputStream     stream;
+
+       counter.samples += (long)samples * channels;
+       stream = new AudioInputStream(new ByteArrayInputStream(rawBytes),
+                                     format, samples);
+       return factory.createBufferedSound(stream);
+    }
+}
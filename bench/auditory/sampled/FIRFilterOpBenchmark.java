@@ -0,0 +1,50 @@
+package auditory.sampled;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for FIRFilterOp, parameterized by the length of the
+ * filter (which determines whether direct or FFT-based convolution
+ * is used)
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FIRFilterOpBenchmark
+{
+    @Param({"44100", "441000"})
+    public int              samples;
+
+    @Param({"1", "2"})
+    public int              channels;
+
+    @Param({"16", "64", "256", "4096"})
+    public int              firLength;
+
+    private BufferedSound   a;
+    private FIRFilterOp     fir;
+
+    /**
+     * Create the sound and operation
+     */
+    @Setup
+    public void setup()
+    {
+       a   = BenchmarkSounds.createNoise(samples, channels, 1L);
+       fir = new FIRFilterOp(BenchmarkSounds.createLowPass(firLength));
+    }
+
+    @Benchmark
+    public BufferedSound filter(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return fir.filter(a, null);
+    }
+}
@@ -0,0 +1,60 @@
+package auditory.sampled;
+
+import javax.sound.sampled.*;
+
+/**
+ * A Clip that accepts (and discards) audio data without using an
+ * audio device, so that BufferedSound.render() can be benchmarked
+ * on machines without one
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class NullClip implements Clip
+{
+    private AudioFormat     format;
+    private boolean         open;
+    private int             frames;
+
+    public void open(AudioFormat format, byte[] data, int offset, 
+                     int bufferSize)
+    {
+       this.format = format;
+       this.frames = bufferSize / format.getFrameSize();
+       this.open   = true;
+    }
+
+    public void open(AudioInputStream stream)
+    {
+       open(stream.getFormat(), new byte[0], 0, 0);
+    }
+
+    public void open()                                    { open = true;  }
+    public void close()                                   { open = false; }
+    public boolean isOpen()                               { return open;  }
+    public int getFrameLength()                           { return frames; }
+    public long getMicrosecondLength()                    { return 0; }
+    public void setFramePosition(int frames)              { }
+    public void setMicrosecondPosition(long microseconds) { }
+    public void setLoopPoints(int start, int end)         { }
+    public void loop(int count)                           { }
+    public void drain()                                   { }
+    public void flush()                                   { }
+    public void start()                                   { }
+    public void stop()                                    { }
+    public boolean isRunning()                            { return false; }
+    public boolean isActive()                             { return false; }
+    public AudioFormat getFormat()                        { return format; }
+    public int getBufferSize()                            { return 0; }
+    public int available()                                { return 0; }
+    public int getFramePosition()                         { return 0; }
+    public long getLongFramePosition()                    { return 0; }
+    public long getMicrosecondPosition()                  { return 0; }
+    public float getLevel()                               { return 0.0f; }
+    public Line.Info getLineInfo()                        { return null; }
+    public Control[] getControls()                        { return new Control[0]; }
+    public boolean isControlSupported(Control.Type type)  { return false; }
+    public Control getControl(Control.Type type)          { return null; }
+    public void addLineListener(LineListener listener)    { }
+    public void removeLineListener(LineListener listener) { }
+}
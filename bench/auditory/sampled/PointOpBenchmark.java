@@ -0,0 +1,94 @@
+package auditory.sampled;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for the sample-by-sample (and reversing/resampling)
+ * operations in auditory.sampled.  Each benchmark creates a new
+ * destination (i.e., calls filter(src, null)) so the allocation rate
+ * reported by the GC profiler includes it.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointOpBenchmark
+{
+    @Param({"44100", "441000"})
+    public int              samples;
+
+    @Param({"1", "2"})
+    public int              channels;
+
+    private AddOp           add;
+    private BufferedSound   a, b;
+    private InvertOp        invert;
+    private MultiplyOp      multiply;
+    private NoiseOp         noise;
+    private ReverseOp       reverse;
+    private SpeedChangeOp   speedChange;
+
+    /**
+     * Create the sounds and operations
+     */
+    @Setup
+    public void setup()
+    {
+       a           = BenchmarkSounds.createNoise(samples, channels, 1L);
+       b           = BenchmarkSounds.createNoise(samples, channels, 2L);
+       add         = new AddOp();
+       multiply    = new MultiplyOp();
+       invert      = new InvertOp();
+       reverse     = new ReverseOp();
+       noise       = new NoiseOp(100.0);
+       speedChange = new SpeedChangeOp(1.5);
+    }
+
+    @Benchmark
+    public BufferedSound add(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return add.filter(a, b, null);
+    }
+
+    @Benchmark
+    public BufferedSound multiply(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return multiply.filter(a, b, null);
+    }
+
+    @Benchmark
+    public BufferedSound invert(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return invert.filter(a, null);
+    }
+
+    @Benchmark
+    public BufferedSound reverse(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return reverse.filter(a, null);
+    }
+
+    @Benchmark
+    public BufferedSound noise(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return noise.filter(a, null);
+    }
+
+    @Benchmark
+    public BufferedSound speedChange(SampleCounter counter)
+    {
+       counter.samples += (long)samples * channels;
+       return speedChange.filter(a, null);
+    }
+}
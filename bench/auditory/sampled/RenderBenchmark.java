@@ -0,0 +1,49 @@
+package auditory.sampled;
+
+import java.util.concurrent.TimeUnit;
+import javax.sound.sampled.LineUnavailableException;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Benchmarks for BufferedSound.render() (i.e., the conversion
+ * of the signals to 16-bit PCM bytes)
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark
+{
+    @Param({"44100", "441000"})
+    public int              samples;
+
+    @Param({"1", "2"})
+    public int              channels;
+
+    private BufferedSound   a;
+    private NullClip        clip;
+
+    /**
+     * Create the sound and the Clip
+     */
+    @Setup
+    public void setup()
+    {
+       a    = BenchmarkSounds.createNoise(samples, channels, 1L);
+       clip = new NullClip();
+    }
+
+    @Benchmark
+    public int render(SampleCounter counter) 
+               throws LineUnavailableException
+    {
+       counter.samples += (long)samples * channels;
+       a.render(clip);
+       return clip.getFrameLength();
+    }
+}
@@ -0,0 +1,26 @@
+package auditory.sampled;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * A JMH auxiliary counter that reports the number of samples
+ * (over all channels) processed per second.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SampleCounter
+{
+    public long          samples;
+
+    /**
+     * Reset the counter before each iteration
+     */
+    @Setup(Level.Iteration)
+    public void reset()
+    {
+       samples = 0;
+    }
+}
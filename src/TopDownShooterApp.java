@@ -1,5 +1,7 @@
 import io.ResourceFinder;
 
+import auditory.sampled.SoundEventBus;
+
 import java.awt.Rectangle;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
@@ -10,6 +12,7 @@ import collectionframework.Quadtree;
 
 import event.Metronome;
 import event.MetronomeListener;
+import event.TickPhase;
 
 import visual.VisualizationView;
 import visual.dynamic.described.*;
@@ -64,9 +67,12 @@ public class  TopDownShooterApp
 	    enemies		 = new ArrayList<AbstractGameSprite>();
 	    bullets		 = new ArrayList<AbstractGameSprite>();
 	    
-	    // Make this App "tick" to the Metronome
+	    // Make this App "tick" to the Metronome. It detects collisions
+	    // after the sprites have moved, and the SoundEventBus then
+	    // dispatches the sounds that were posted during the tick
 	    m = stage.getMetronome();
-	    m.addListener(this);
+	    m.addListener(TickPhase.CLEANUP, SoundEventBus.createInstance(finder));
+	    m.addListener(TickPhase.COLLIDE, this);
     
 	}
 
@@ -13,8 +13,8 @@ import javax.sound.midi.*;
 public abstract class      AbstractContent
                 implements Content
 {
-    protected boolean                 audible, dotted, playing;
-    protected int                     type;
+    protected final boolean           dotted;
+    protected final int               type;
 
     /**
      * Default Constructor
@@ -34,8 +34,6 @@ public abstract class      AbstractContent
     {
         this.type     = type;
         this.dotted   = dotted;
-        this.audible  = false;
-        this.playing  = false;        
     }
 
     /**
@@ -62,66 +60,42 @@ public abstract class      AbstractContent
     }
 
     /**
-     * Render this AbstractContent on the given MidiChannel
-     * (required by MidiSound)
+     * Start playing this AbstractContent on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    public void render(MidiChannel channel)
-    {
-       if      ( audible && !playing) 
-       {
-          playing = true;             
-          startPlaying(channel);
-       }
-       else if (!audible &&  playing) 
-       {
-          playing = false;             
-          stopPlaying(channel);
-       }
-    }
+    public abstract void startPlaying(MidiChannel channel);
 
     /**
-     * Set whether this AbstractContent is audible or note
+     * Start playing this AbstractContent by sending (time stamped)
+     * messages to a Receiver
+     * (required by Content)
      *
-     * @param audible  true to make it audible; false otherwise
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
      */
-    public void setAudible(boolean audible)
-    {
-       this.audible = audible; 
-    }
+    public abstract void startPlaying(Receiver receiver, int channel,
+                                      long timeStamp);
 
-    /** 
-     * Set whether this AbstractContent is dotted
-     *
-     * @param dotted   Whether the note is dotted
-     */
-    protected void setDotted(boolean dotted)
-    {
-       this.dotted = dotted;       
-    }
-    
     /**
-     * Set the type of this AbstractContent
-     *
-     * @param type     1 for whole notes, 2 for half notes, etc...
-     */
-    protected void setType(int type)
-    {
-       this.type = type;       
-    }
-
-    /**
-     * Start playing this AbstractContent on the given MidiChannel
+     * Stop playing this AbstractContent on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    protected abstract void startPlaying(MidiChannel channel);
+    public abstract void stopPlaying(MidiChannel channel);
 
     /**
-     * Start playing this AbstractContent on the given MidiChannel
+     * Stop playing this AbstractContent by sending (time stamped)
+     * messages to a Receiver
+     * (required by Content)
      *
-     * @param channel   The MIDI channel to use
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
      */
-    protected abstract void stopPlaying(MidiChannel channel);
+    public abstract void stopPlaying(Receiver receiver, int channel,
+                                     long timeStamp);
 }
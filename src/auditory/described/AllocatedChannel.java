@@ -0,0 +1,469 @@
+package auditory.described;
+
+import javax.sound.midi.*;
+
+/**
+ * A MidiChannel that has been allocated by a ChannelAllocator.
+ *
+ * An AllocatedChannel forwards everything to the MidiChannel it
+ * was allocated until it is released or stolen (i.e., allocated to
+ * something with a higher priority).  After that, it ignores all
+ * messages, so the Score that was using it can't interfere with the
+ * Score that is now using the underlying MidiChannel.
+ *
+ * An AllocatedChannel is also a Receiver for the Synthesizer that
+ * owns the MidiChannel, so that (time stamped) messages can be sent
+ * to it.  Since time stamped messages may be queued in the
+ * Synthesizer, turning off all of the notes (and revoking) also
+ * turns off the notes that are started by queued messages.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class AllocatedChannel implements MidiChannel, Receiver
+{
+    private int                  number;
+    private long                 lastTimeStamp;
+    private MidiChannel          channel;
+    private MidiDevice           device;
+    private Receiver             receiver;
+
+    private static final int     ALL_NOTES_OFF = 123;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param channel   The underlying MidiChannel
+     * @param number    The number of the underlying MidiChannel
+     * @param device    The MidiDevice that owns the MidiChannel
+     * @param receiver  The Receiver for that MidiDevice
+     */
+    AllocatedChannel(MidiChannel channel, int number, 
+                     MidiDevice device, Receiver receiver)
+    {
+       this.channel  = channel;
+       this.number   = number;
+       this.device   = device;
+       this.receiver = receiver;
+       lastTimeStamp = -1;
+    }
+
+    /**
+     * Turn off all of the notes that are playing (or will be
+     * started by queued messages)
+     * (required by MidiChannel)
+     */
+    public synchronized void allNotesOff()
+    {
+       if (channel != null) 
+       {
+          channel.allNotesOff();
+          cancelQueued();
+       }
+    }
+
+    /**
+     * Turn off all of the sound that is playing
+     * (required by MidiChannel)
+     */
+    public synchronized void allSoundOff()
+    {
+       if (channel != null) channel.allSoundOff();
+    }
+
+    /**
+     * Turn off the notes that will be started by queued messages
+     * (by queueing a message that turns off all notes after them)
+     */
+    private void cancelQueued()
+    {
+       long           timeStamp;
+
+       timeStamp = getNextTimeStamp();
+       if (timeStamp >= 0)
+       {
+          try
+          {
+             receiver.send(new ShortMessage(ShortMessage.CONTROL_CHANGE,
+                                            number, ALL_NOTES_OFF, 0), 
+                           timeStamp);
+             lastTimeStamp = timeStamp;
+          }
+          catch (InvalidMidiDataException imde)
+          {
+             // The number of the channel is always valid
+          }
+       }
+    }
+
+    /**
+     * Indicate that this Receiver is no longer needed
+     * (required by Receiver)
+     *
+     * Note: This method does nothing since the Receiver for the
+     * MidiDevice is shared (use ChannelAllocator.release() instead)
+     */
+    public void close()
+    {
+    }
+
+    /**
+     * Change the value of a controller
+     * (required by MidiChannel)
+     *
+     * @param controller   The number of the controller
+     * @param value        The value
+     */
+    public synchronized void controlChange(int controller, int value)
+    {
+       if (channel != null) channel.controlChange(controller, value);
+    }
+
+    /**
+     * Get the number of the underlying MidiChannel (e.g., for use
+     * in a Sequence)
+     *
+     * @return   The number (in [0, 15])
+     */
+    public int getChannelNumber()
+    {
+       return number;
+    }
+
+    /**
+     * Get the channel pressure
+     * (required by MidiChannel)
+     *
+     * @return   The pressure (or 0 if this AllocatedChannel is revoked)
+     */
+    public synchronized int getChannelPressure()
+    {
+       if (channel == null) return 0;
+
+       return channel.getChannelPressure();
+    }
+
+    /**
+     * Get the value of a controller
+     * (required by MidiChannel)
+     *
+     * @param controller   The number of the controller
+     * @return             The value (or 0 if this AllocatedChannel is revoked)
+     */
+    public synchronized int getController(int controller)
+    {
+       if (channel == null) return 0;
+
+       return channel.getController(controller);
+    }
+
+    /**
+     * Is mono mode on?
+     * (required by MidiChannel)
+     *
+     * @return   true if it is on (and this AllocatedChannel isn't revoked)
+     */
+    public synchronized boolean getMono()
+    {
+       return (channel != null) && channel.getMono();
+    }
+
+    /**
+     * Is this channel muted?
+     * (required by MidiChannel)
+     *
+     * @return   true if it is muted (or this AllocatedChannel is revoked)
+     */
+    public synchronized boolean getMute()
+    {
+       return (channel == null) || channel.getMute();
+    }
+
+    /**
+     * Is omni mode on?
+     * (required by MidiChannel)
+     *
+     * @return   true if it is on (and this AllocatedChannel isn't revoked)
+     */
+    public synchronized boolean getOmni()
+    {
+       return (channel != null) && channel.getOmni();
+    }
+
+    /**
+     * Get the current time of the MidiDevice that owns the underlying
+     * MidiChannel (i.e., the clock that time stamps are relative to)
+     *
+     * @return   The time (in microseconds) or -1 if it isn't supported
+     */
+    public long getMicrosecondPosition()
+    {
+       return device.getMicrosecondPosition();
+    }
+
+    /**
+     * Get a time stamp that is after the time stamps of all of the 
+     * messages that are still queued
+     *
+     * @return   The time stamp (in microseconds) or -1 if there 
+     *           aren't any queued messages
+     */
+    public synchronized long getNextTimeStamp()
+    {
+       if ((lastTimeStamp < 0) || 
+           (lastTimeStamp < device.getMicrosecondPosition())) return -1;
+
+       return lastTimeStamp + 1;
+    }
+
+    /**
+     * Get the pitch bend
+     * (required by MidiChannel)
+     *
+     * @return   The pitch bend (or 8192, i.e., none, if this
+     *           AllocatedChannel is revoked)
+     */
+    public synchronized int getPitchBend()
+    {
+       if (channel == null) return 8192;
+
+       return channel.getPitchBend();
+    }
+
+    /**
+     * Get the pressure for a note
+     * (required by MidiChannel)
+     *
+     * @param noteNumber   The MIDI number of the note
+     * @return             The pressure (or 0 if this AllocatedChannel is revoked)
+     */
+    public synchronized int getPolyPressure(int noteNumber)
+    {
+       if (channel == null) return 0;
+
+       return channel.getPolyPressure(noteNumber);
+    }
+
+    /**
+     * Get the current program
+     * (required by MidiChannel)
+     *
+     * @return   The program (or 0 if this AllocatedChannel is revoked)
+     */
+    public synchronized int getProgram()
+    {
+       if (channel == null) return 0;
+
+       return channel.getProgram();
+    }
+
+    /**
+     * Is solo mode on?
+     * (required by MidiChannel)
+     *
+     * @return   true if it is on (and this AllocatedChannel isn't revoked)
+     */
+    public synchronized boolean getSolo()
+    {
+       return (channel != null) && channel.getSolo();
+    }
+
+    /**
+     * Has this AllocatedChannel been released or stolen?
+     *
+     * @return   true if it has; false otherwise
+     */
+    public synchronized boolean isRevoked()
+    {
+       return channel == null;
+    }
+
+    /**
+     * Turn local control on or off
+     * (required by MidiChannel)
+     *
+     * @param on   true to turn it on; false to turn it off
+     * @return     The new state of local control
+     */
+    public synchronized boolean localControl(boolean on)
+    {
+       return (channel != null) && channel.localControl(on);
+    }
+
+    /**
+     * Turn off a note
+     * (required by MidiChannel)
+     *
+     * @param noteNumber   The MIDI number of the note
+     */
+    public synchronized void noteOff(int noteNumber)
+    {
+       if (channel != null) channel.noteOff(noteNumber);
+    }
+
+    /**
+     * Turn off a note
+     * (required by MidiChannel)
+     *
+     * @param noteNumber   The MIDI number of the note
+     * @param velocity     The release velocity
+     */
+    public synchronized void noteOff(int noteNumber, int velocity)
+    {
+       if (channel != null) channel.noteOff(noteNumber, velocity);
+    }
+
+    /**
+     * Turn on a note
+     * (required by MidiChannel)
+     *
+     * @param noteNumber   The MIDI number of the note
+     * @param velocity     The velocity
+     */
+    public synchronized void noteOn(int noteNumber, int velocity)
+    {
+       if (channel != null) channel.noteOn(noteNumber, velocity);
+    }
+
+    /**
+     * Change the program
+     * (required by MidiChannel)
+     *
+     * @param program   The program
+     */
+    public synchronized void programChange(int program)
+    {
+       if (channel != null) channel.programChange(program);
+    }
+
+    /**
+     * Change the bank and program
+     * (required by MidiChannel)
+     *
+     * @param bank      The bank
+     * @param program   The program
+     */
+    public synchronized void programChange(int bank, int program)
+    {
+       if (channel != null) channel.programChange(bank, program);
+    }
+
+    /**
+     * Reset all of the controllers to their default values
+     * (required by MidiChannel)
+     */
+    public synchronized void resetAllControllers()
+    {
+       if (channel != null) channel.resetAllControllers();
+    }
+
+    /**
+     * Stop forwarding messages to the underlying MidiChannel
+     * (after turning off all of its notes)
+     */
+    synchronized void revoke()
+    {
+       if (channel != null)
+       {
+          channel.allNotesOff();
+          channel.resetAllControllers();
+          cancelQueued();
+          channel = null;
+       }
+    }
+
+    /**
+     * Send a (time stamped) message to the MidiDevice that owns the
+     * underlying MidiChannel
+     * (required by Receiver)
+     *
+     * @param message     The message
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public synchronized void send(MidiMessage message, long timeStamp)
+    {
+       if (channel != null)
+       {
+          receiver.send(message, timeStamp);
+          if (timeStamp > lastTimeStamp) lastTimeStamp = timeStamp;
+       }
+    }
+
+    /**
+     * Set the channel pressure
+     * (required by MidiChannel)
+     *
+     * @param pressure   The pressure
+     */
+    public synchronized void setChannelPressure(int pressure)
+    {
+       if (channel != null) channel.setChannelPressure(pressure);
+    }
+
+    /**
+     * Turn mono mode on or off
+     * (required by MidiChannel)
+     *
+     * @param on   true to turn it on; false to turn it off
+     */
+    public synchronized void setMono(boolean on)
+    {
+       if (channel != null) channel.setMono(on);
+    }
+
+    /**
+     * Mute or unmute this channel
+     * (required by MidiChannel)
+     *
+     * @param mute   true to mute; false to unmute
+     */
+    public synchronized void setMute(boolean mute)
+    {
+       if (channel != null) channel.setMute(mute);
+    }
+
+    /**
+     * Turn omni mode on or off
+     * (required by MidiChannel)
+     *
+     * @param on   true to turn it on; false to turn it off
+     */
+    public synchronized void setOmni(boolean on)
+    {
+       if (channel != null) channel.setOmni(on);
+    }
+
+    /**
+     * Set the pitch bend
+     * (required by MidiChannel)
+     *
+     * @param bend   The pitch bend
+     */
+    public synchronized void setPitchBend(int bend)
+    {
+       if (channel != null) channel.setPitchBend(bend);
+    }
+
+    /**
+     * Set the pressure for a note
+     * (required by MidiChannel)
+     *
+     * @param noteNumber   The MIDI number of the note
+     * @param pressure     The pressure
+     */
+    public synchronized void setPolyPressure(int noteNumber, int pressure)
+    {
+       if (channel != null) channel.setPolyPressure(noteNumber, pressure);
+    }
+
+    /**
+     * Turn solo mode on or off
+     * (required by MidiChannel)
+     *
+     * @param soloState   true to turn it on; false to turn it off
+     */
+    public synchronized void setSolo(boolean soloState)
+    {
+       if (channel != null) channel.setSolo(soloState);
+    }
+}
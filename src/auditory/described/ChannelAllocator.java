@@ -0,0 +1,256 @@
+package auditory.described;
+
+import java.io.*;
+import java.util.*;
+import javax.sound.midi.*;
+
+import io.*;
+
+/**
+ * A ChannelAllocator shares the (melodic) MidiChannel objects of one
+ * open Synthesizer among any number of Score objects (e.g., music,
+ * stingers and boss themes), so that each Orchestra doesn't need to
+ * open its own Synthesizer.
+ *
+ * Each allocation has a priority.  When all of the channels are in
+ * use, an allocation steals the channel with the lowest priority
+ * (the oldest, if there is more than one) as long as that priority
+ * is strictly lower than its own (so allocations with the same
+ * priority, e.g., the parts of one Score, never steal from each
+ * other).  The AllocatedChannel that was stolen
+ * stops forwarding messages, so the Score that was using it simply
+ * goes quiet.
+ *
+ * Note: The percussion channel is never allocated.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class ChannelAllocator
+{
+    private AllocatedChannel[]                 owners;
+    private Hashtable<String, Instrument>      instruments;
+    private int[]                              numbers, priorities;
+    private long                               allocations;
+    private long[]                             ages;
+    private MidiChannel[]                      channels;
+    private Receiver                           receiver;
+    private Soundbank                          soundbank;
+    private Synthesizer                        synthesizer;
+
+    private static final int                   PERCUSSION = 9;
+
+    private static ChannelAllocator            instance;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param synthesizer   The (open) Synthesizer whose channels are shared
+     */
+    public ChannelAllocator(Synthesizer synthesizer)
+                            throws MidiUnavailableException
+    {
+       Instrument[]      loaded;
+       int               n;
+       MidiChannel[]     all;
+
+       this.synthesizer = synthesizer;
+       receiver         = synthesizer.getReceiver();
+
+       soundbank = synthesizer.getDefaultSoundbank();
+       if (soundbank == null) soundbank = findSoundbank();
+       synthesizer.loadAllInstruments(soundbank);
+
+       instruments = new Hashtable<String, Instrument>();
+       loaded      = synthesizer.getLoadedInstruments();
+       for (int i=0; i<loaded.length; i++)
+       {
+          instruments.put(loaded[i].getName(), loaded[i]);
+       }
+
+       // The melodic channels
+       all = synthesizer.getChannels();
+       n   = 0;
+       for (int c=0; c<all.length; c++)
+       {
+          if ((c != PERCUSSION) && (all[c] != null)) n++;
+       }
+
+       channels   = new MidiChannel[n];
+       numbers    = new int[n];
+       owners     = new AllocatedChannel[n];
+       priorities = new int[n];
+       ages       = new long[n];
+       n          = 0;
+       for (int c=0; c<all.length; c++)
+       {
+          if ((c != PERCUSSION) && (all[c] != null))
+          {
+             channels[n] = all[c];
+             numbers[n]  = c;
+             n++;
+          }
+       }
+    }
+
+    /**
+     * Allocate a MidiChannel
+     *
+     * @param priority   The priority of the allocation (higher is more important)
+     * @return           The AllocatedChannel (or null if all of the
+     *                   channels are in use with the same or a
+     *                   higher priority)
+     */
+    public synchronized AllocatedChannel allocate(int priority)
+    {
+       int      victim;
+
+       // Use a free channel if there is one; otherwise, use the
+       // oldest channel with the lowest priority
+       victim = -1;
+       for (int c=0; c<channels.length; c++)
+       {
+          if (owners[c] == null)
+          {
+             victim = c;
+             break;
+          }
+
+          if ((victim == -1)                       ||
+              (priorities[c] <  priorities[victim]) ||
+              ((priorities[c] == priorities[victim]) &&
+               (ages[c] < ages[victim]))               ) victim = c;
+       }
+
+       if (victim == -1) return null;
+
+       if (owners[victim] != null)
+       {
+          if (priorities[victim] >= priority) return null;
+
+          owners[victim].revoke();
+       }
+
+       owners[victim]     = new AllocatedChannel(channels[victim],
+                                                 numbers[victim],
+                                                 synthesizer, receiver);
+       priorities[victim] = priority;
+       ages[victim]       = allocations++;
+
+       return owners[victim];
+    }
+
+    /**
+     * Find the soundbank resource (for synthesizers that don't
+     * have a default soundbank)
+     *
+     * @return   The Soundbank
+     */
+    private Soundbank findSoundbank() throws MidiUnavailableException
+    {
+       InputStream           is;
+       ResourceFinder        finder;
+
+       finder = ResourceFinder.createInstance(this);
+       is     = finder.findInputStream("soundbank-mid.gm");
+
+       try
+       {
+          return MidiSystem.getSoundbank(new BufferedInputStream(is));
+       }
+       catch (Exception e)
+       {
+          throw(new MidiUnavailableException("No soundbank"));
+       }
+    }
+
+    /**
+     * Get the shared ChannelAllocator (for the default Synthesizer),
+     * opening the Synthesizer if necessary
+     *
+     * @return   The ChannelAllocator
+     */
+    public static synchronized ChannelAllocator getInstance()
+                                                throws MidiUnavailableException
+    {
+       Synthesizer      synthesizer;
+
+       if (instance == null)
+       {
+          synthesizer = MidiSystem.getSynthesizer();
+          synthesizer.open();
+          instance    = new ChannelAllocator(synthesizer);
+       }
+
+       return instance;
+    }
+
+    /**
+     * Get a loaded Instrument
+     *
+     * @param name   The name of the Instrument
+     * @return       The Instrument (or null if there is none)
+     */
+    public Instrument getInstrument(String name)
+    {
+       if (name == null) return null;
+
+       return instruments.get(name);
+    }
+
+    /**
+     * Get the number of channels that are not in use
+     *
+     * @return   The number of channels
+     */
+    public synchronized int getNumberOfFreeChannels()
+    {
+       int      n;
+
+       n = 0;
+       for (int c=0; c<owners.length; c++)
+       {
+          if (owners[c] == null) n++;
+       }
+
+       return n;
+    }
+
+    /**
+     * Get the Soundbank that the instruments were loaded from
+     *
+     * @return   The Soundbank
+     */
+    public Soundbank getSoundbank()
+    {
+       return soundbank;
+    }
+
+    /**
+     * Get the Synthesizer whose channels are shared
+     *
+     * @return   The Synthesizer
+     */
+    public Synthesizer getSynthesizer()
+    {
+       return synthesizer;
+    }
+
+    /**
+     * Release a MidiChannel (turning off all of its notes).  Nothing
+     * happens if it has already been released or stolen.
+     *
+     * @param channel   The AllocatedChannel
+     */
+    public synchronized void release(AllocatedChannel channel)
+    {
+       for (int c=0; c<owners.length; c++)
+       {
+          if (owners[c] == channel)
+          {
+             owners[c] = null;
+             channel.revoke();
+          }
+       }
+    }
+}
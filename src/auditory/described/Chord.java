@@ -47,12 +47,23 @@ public class      Chord
        notes.add(note);       
     }
 
+    /**
+     * Get the Note objects in this Chord
+     *
+     * @return   An Iterator over the Note objects
+     */
+    public Iterator<Note> getNotes()
+    {
+       return notes.iterator();
+    }
+
     /**
      * Start playing this Chord on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    protected void startPlaying(MidiChannel channel)
+    public void startPlaying(MidiChannel channel)
     {
        Iterator<Note>     i;
        Note               note;
@@ -63,19 +74,18 @@ public class      Chord
           note = i.next();
           if (note != null)
           {
-             note.setType(type);
-             note.setDotted(dotted);
              note.startPlaying(channel);          
           }
        }
     }
 
     /**
-     * Start playing this Chord on the given MidiChannel
+     * Stop playing this Chord on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    protected void stopPlaying(MidiChannel channel)
+    public void stopPlaying(MidiChannel channel)
     {
        Iterator<Note>     i;
        Note               note;
@@ -90,5 +100,72 @@ public class      Chord
           }
        }
     }
-}
 
+    /**
+     * Send the messages for all of the Note objects in this Chord
+     * to a Receiver as one batch (i.e., all of the messages are
+     * created first and then sent, with the same time stamp, without
+     * any other thread sending to the Receiver in between)
+     *
+     * @param receiver    The Receiver
+     * @param command     ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param channel     The number of the MIDI channel
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    private void send(Receiver receiver, int command, int channel,
+                      long timeStamp)
+    {
+       int                n;
+       Note               note;
+       ShortMessage       message;
+       ShortMessage[]     batch;
+
+       batch = new ShortMessage[notes.size()];
+       n     = 0;
+       for (int i=0; i<batch.length; i++)
+       {
+          note = notes.get(i);
+          if (note != null)
+          {
+             message = note.createMessage(command, channel);
+             if (message != null) batch[n++] = message;
+          }
+       }
+
+       synchronized(receiver)
+       {
+          for (int i=0; i<n; i++)
+          {
+             receiver.send(batch[i], timeStamp);
+          }
+       }
+    }
+
+    /**
+     * Start playing this Chord by sending (time stamped) messages
+     * to a Receiver
+     * (required by Content)
+     *
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public void startPlaying(Receiver receiver, int channel, long timeStamp)
+    {
+       send(receiver, ShortMessage.NOTE_ON, channel, timeStamp);
+    }
+
+    /**
+     * Stop playing this Chord by sending (time stamped) messages
+     * to a Receiver
+     * (required by Content)
+     *
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public void stopPlaying(Receiver receiver, int channel, long timeStamp)
+    {
+       send(receiver, ShortMessage.NOTE_OFF, channel, timeStamp);
+    }
+}
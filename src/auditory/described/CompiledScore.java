@@ -0,0 +1,260 @@
+package auditory.described;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.nio.file.*;
+
+/**
+ * A compact representation of a Score in which each note is packed
+ * into an int (see NoteFactory.pack()).
+ *
+ * A CompiledScore can be written to (and read from) a binary file
+ * that contains a (versioned) header, the time signature and tempo,
+ * and the name of the instrument and the packed notes for each part.
+ * The complete file is read at once and the notes are copied out of
+ * it in bulk.  The file also records the size and modification time
+ * of the text file it was compiled from, so that it is ignored (and
+ * replaced) when the text file changes.
+ *
+ * Compiled score files are written to a cache directory (never next
+ * to the text files).  A compiled score file that is incomplete or
+ * corrupt is ignored.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class CompiledScore
+{
+    private int              denominator, numerator, tempo;
+    private int[][]          notes;
+    private String[]         instruments;
+
+    /**
+     * The extension of compiled score files
+     */
+    public static final String   EXTENSION = ".bin";
+
+    /**
+     * The version of the binary format
+     */
+    public static final int      VERSION   = 1;
+
+    /**
+     * The name of the default cache directory (in java.io.tmpdir)
+     */
+    public static final String   DEFAULT_DIRECTORY = "shoot-everything-scores";
+
+    private static final Charset  UTF8     = Charset.forName("UTF-8");
+    private static final int      HEADER_SIZE = 40;
+    private static final int      MAGIC    = 0x42534352; // "BSCR"
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param numerator    The numerator of the time signature
+     * @param denominator  The denominator of the time signature
+     * @param tempo        The tempo (in milliseconds per measure)
+     * @param instruments  The name of the instrument for each part
+     * @param notes        The packed notes in each part
+     */
+    public CompiledScore(int numerator, int denominator, int tempo,
+                         String[] instruments, int[][] notes)
+    {
+       this.numerator   = numerator;
+       this.denominator = denominator;
+       this.tempo       = tempo;
+       this.instruments = instruments;
+       this.notes       = notes;
+    }
+
+    /**
+     * Create a Score from this CompiledScore
+     *
+     * @return   The Score
+     */
+    public Score createScore()
+    {
+       int[]     packed;
+       Part      part;
+       Score     score;
+
+       score = new Score();
+       score.setTimeSignature(numerator, denominator);
+       score.setTempo(tempo);
+
+       for (int p=0; p<notes.length; p++)
+       {
+          part   = new Part();
+          packed = notes[p];
+          for (int i=0; i<packed.length; i++)
+          {
+             part.add(NoteFactory.createNote(packed[i]));
+          }
+          score.addPart(part, instruments[p]);
+       }
+
+       return score;
+    }
+
+    /**
+     * Get the compiled score file for a text file
+     *
+     * @param source      The text file
+     * @param directory   The cache directory
+     * @return            The compiled score file
+     */
+    public static File getCompiledFile(File source, File directory)
+    {
+       String    name;
+
+       // Include the (hash of the) path so that files with the
+       // same name in different directories don't collide
+       name = source.getName() + "." +
+              Integer.toHexString(source.getAbsolutePath().hashCode());
+
+       return new File(directory, name + EXTENSION);
+    }
+
+    /**
+     * Get the default cache directory (in java.io.tmpdir)
+     *
+     * @return   The directory
+     */
+    public static File getDefaultDirectory()
+    {
+       return new File(System.getProperty("java.io.tmpdir"), 
+                       DEFAULT_DIRECTORY);
+    }
+
+    /**
+     * Read the CompiledScore for a text file (if it has been compiled
+     * since it was last changed)
+     *
+     * @param source      The text file
+     * @param directory   The cache directory
+     * @return            The CompiledScore (or null)
+     */
+    public static CompiledScore read(File source, File directory)
+    {
+       byte[]           name;
+       ByteBuffer       buffer;
+       File             file;
+       int              count, denominator, numerator, parts, tempo;
+       int[][]          notes;
+       String[]         instruments;
+
+       file = getCompiledFile(source, directory);
+       if (!file.isFile() || (file.length() < HEADER_SIZE)) return null;
+
+       try
+       {
+          // Read the complete file at once
+          buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+
+          if ((buffer.getInt()  != MAGIC)              ||
+              (buffer.getInt()  != VERSION)            ||
+              (buffer.getLong() != source.length())    ||
+              (buffer.getLong() != source.lastModified())) return null;
+
+          numerator   = buffer.getInt();
+          denominator = buffer.getInt();
+          tempo       = buffer.getInt();
+          parts       = buffer.getInt();
+
+          // Make sure the counts fit in the file (so that a corrupt
+          // file can't cause huge allocations)
+          if ((parts < 0) || (parts > buffer.remaining() / 8)) return null;
+
+          instruments = new String[parts];
+          notes       = new int[parts][];
+          for (int p=0; p<parts; p++)
+          {
+             count = buffer.getInt();
+             if ((count < 0) || (count > buffer.remaining())) return null;
+             name  = new byte[count];
+             buffer.get(name);
+             instruments[p] = new String(name, UTF8);
+
+             count = buffer.getInt();
+             if ((count < 0) || (count > buffer.remaining() / 4)) return null;
+             notes[p] = new int[count];
+             buffer.asIntBuffer().get(notes[p]);
+             buffer.position(buffer.position() + 4*count);
+          }
+
+          if (buffer.hasRemaining()) return null;
+       }
+       catch (IOException | RuntimeException e)
+       {
+          // The file is unreadable or incomplete
+          return null;
+       }
+
+       return new CompiledScore(numerator, denominator, tempo,
+                                instruments, notes);
+    }
+
+    /**
+     * Write this CompiledScore for a text file.  Nothing is written
+     * if the file can't be written (e.g., if the directory is
+     * read-only).
+     *
+     * @param source      The text file
+     * @param directory   The cache directory
+     */
+    public void write(File source, File directory)
+    {
+       byte[][]         names;
+       ByteBuffer       buffer;
+       File             file, temp;
+       int              size;
+
+       // Calculate the size of the file
+       names = new byte[instruments.length][];
+       size  = HEADER_SIZE;
+       for (int p=0; p<instruments.length; p++)
+       {
+          names[p] = instruments[p].getBytes(UTF8);
+          size    += 8 + names[p].length + 4*notes[p].length;
+       }
+
+       buffer = ByteBuffer.allocate(size);
+       buffer.putInt(MAGIC);
+       buffer.putInt(VERSION);
+       buffer.putLong(source.length());
+       buffer.putLong(source.lastModified());
+       buffer.putInt(numerator);
+       buffer.putInt(denominator);
+       buffer.putInt(tempo);
+       buffer.putInt(instruments.length);
+       for (int p=0; p<instruments.length; p++)
+       {
+          buffer.putInt(names[p].length);
+          buffer.put(names[p]);
+          buffer.putInt(notes[p].length);
+          buffer.asIntBuffer().put(notes[p]);
+          buffer.position(buffer.position() + 4*notes[p].length);
+       }
+
+       file = getCompiledFile(source, directory);
+       temp = null;
+       try
+       {
+          if (!directory.isDirectory()) directory.mkdirs();
+
+          // Write a temporary file and rename it (so the
+          // compiled score file is never incomplete)
+          temp = File.createTempFile(file.getName(), ".tmp",
+                                     file.getAbsoluteFile().getParentFile());
+          Files.write(temp.toPath(), buffer.array());
+          Files.move(temp.toPath(), file.toPath(),
+                     StandardCopyOption.REPLACE_EXISTING);
+       }
+       catch (IOException ioe)
+       {
+          // The score just won't be cached
+          if (temp != null) temp.delete();
+       }
+    }
+}
@@ -27,16 +27,42 @@ public interface Content
     public abstract boolean isDotted();    
     
     /**
-     * Render this Content on the given MidiChannel
+     * Start playing this Content on the given MidiChannel
+     *
+     * Note: A Content does not keep track of whether it is playing
+     * (so that the same Content can be shared by any number of
+     * Part objects).  The caller must keep track of that.
+     *
+     * @param channel   The MIDI channel to use
+     */
+    public abstract void startPlaying(MidiChannel channel);
+
+    /**
+     * Start playing this Content by sending (time stamped) messages
+     * to a Receiver
+     *
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public abstract void startPlaying(Receiver receiver, int channel,
+                                      long timeStamp);
+
+    /**
+     * Stop playing this Content on the given MidiChannel
      *
      * @param channel   The MIDI channel to use
      */
-    public abstract void render(MidiChannel channel);
+    public abstract void stopPlaying(MidiChannel channel);
 
     /**
-     * Set whether this Content is audible or note
+     * Stop playing this Content by sending (time stamped) messages
+     * to a Receiver
      *
-     * @param audible  true to make it audible; false otherwise
+     * @param receiver    The Receiver to send the messages to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
      */
-    public abstract void setAudible(boolean audible);    
+    public abstract void stopPlaying(Receiver receiver, int channel,
+                                     long timeStamp);
 }
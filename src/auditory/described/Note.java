@@ -5,6 +5,9 @@ import javax.sound.midi.*;
 /**
  * An encapsulation of a single note in a song
  *
+ * Note objects are immutable, so the same Note can be used any
+ * number of times (see NoteFactory.createNote()).
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
@@ -12,9 +15,9 @@ import javax.sound.midi.*;
 public class   Note 
        extends AbstractContent
 {
-    private boolean                 sharp;
-    private char                    pitch;
-    private int                     midiNumber;
+    private final boolean           sharp;
+    private final char              pitch;
+    private final int               midiNumber;
 
     /**
      * Default Constructor
@@ -45,6 +48,27 @@ public class   Note
        midiNumber = MidiCalculator.numberFor(pitch, sharp, octave);
     }
 
+    /**
+     * Create the message that starts or stops this Note
+     *
+     * @param command   ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param channel   The number of the MIDI channel
+     * @return          The message (or null for a rest)
+     */
+    ShortMessage createMessage(int command, int channel)
+    {
+       if ((midiNumber < 0) || (midiNumber > 127)) return null;
+
+       try
+       {
+          return new ShortMessage(command, channel, midiNumber, 127);
+       }
+       catch (InvalidMidiDataException imde)
+       {
+          return null;
+       }
+    }
+
     /**
      * Get the MIDI number associated with this Note
      *
@@ -57,21 +81,68 @@ public class   Note
 
     /**
      * Start playing this Note on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    protected void startPlaying(MidiChannel channel)
+    public void startPlaying(MidiChannel channel)
     {
        channel.noteOn(midiNumber, 127);
     }
 
     /**
-     * Start playing this Note on the given MidiChannel
+     * Stop playing this Note on the given MidiChannel
+     * (required by Content)
      *
      * @param channel   The MIDI channel to use
      */
-    protected void stopPlaying(MidiChannel channel)
+    public void stopPlaying(MidiChannel channel)
     {
        channel.noteOff(midiNumber, 127);
     }
+
+    /**
+     * Send a message for this Note to a Receiver
+     *
+     * @param receiver    The Receiver
+     * @param command     ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param channel     The number of the MIDI channel
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    private void send(Receiver receiver, int command, int channel,
+                      long timeStamp)
+    {
+       ShortMessage     message;
+
+       message = createMessage(command, channel);
+       if (message != null) receiver.send(message, timeStamp);
+    }
+
+    /**
+     * Start playing this Note by sending a (time stamped) message
+     * to a Receiver
+     * (required by Content)
+     *
+     * @param receiver    The Receiver to send the message to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public void startPlaying(Receiver receiver, int channel, long timeStamp)
+    {
+       send(receiver, ShortMessage.NOTE_ON, channel, timeStamp);
+    }
+
+    /**
+     * Stop playing this Note by sending a (time stamped) message
+     * to a Receiver
+     * (required by Content)
+     *
+     * @param receiver    The Receiver to send the message to
+     * @param channel     The number of the MIDI channel to use
+     * @param timeStamp   The time stamp (in microseconds) or -1
+     */
+    public void stopPlaying(Receiver receiver, int channel, long timeStamp)
+    {
+       send(receiver, ShortMessage.NOTE_OFF, channel, timeStamp);
+    }
 }
@@ -1,16 +1,106 @@
 package auditory.described;
 
-import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * A factory that can be used to create Note objects
  *
+ * Since Note objects are immutable, the Note objects created from
+ * packed representations (and, hence, from String representations)
+ * are shared.  That is, there is only one Note object for each
+ * distinct note (no matter how many times it is used).
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */ 
 public class NoteFactory
 {
+    /**
+     * The value returned by pack() and parse() for a note that
+     * can't be represented
+     */
+    public static final int     INVALID      = -1;
+
+    private static final int    DOTTED       = 1 << 9;
+    private static final int    MAX_TYPE     = 0x3fff;
+    private static final int    OCTAVE_BIAS  = 128;
+    private static final int    OCTAVE_SHIFT = 10;
+    private static final int    SHARP        = 1 << 8;
+    private static final int    TYPE_SHIFT   = 18;
+
+    private static final ConcurrentHashMap<Integer, Note> notes = 
+                                new ConcurrentHashMap<Integer, Note>();
+
+    /**
+     * Create a Note from its packed representation (or get the
+     * existing Note with that representation)
+     *
+     * @param packed   The packed representation (see pack())
+     * @return         The (shared) Note
+     */
+    public static Note createNote(int packed)
+    {
+       Note      existing, note;
+
+       note = notes.get(packed);
+       if (note == null)
+       {
+          note     = new Note((char)(packed & 0xff),
+                              (packed & SHARP) != 0,
+                              ((packed >>> OCTAVE_SHIFT) & 0xff) - OCTAVE_BIAS,
+                              packed >>> TYPE_SHIFT,
+                              (packed & DOTTED) != 0);
+
+          // Another thread may have created it in the meantime
+          existing = notes.putIfAbsent(packed, note);
+          if (existing != null) note = existing;
+       }
+
+       return note;
+    }
+
+    /**
+     * Get the number of distinct Note objects that have been
+     * created from packed representations
+     *
+     * @return   The number of Note objects
+     */
+    public static int getNumberOfNotes()
+    {
+       return notes.size();
+    }
+
+    /**
+     * Pack the description of a note into an int (with the pitch in
+     * bits 0-7, the sharp and dotted flags in bits 8 and 9, the
+     * octave in bits 10-17, and the type in bits 18-31)
+     *
+     * @param pitch    The pitch ('A','B','C','D','E','F', 'G' or 'R')
+     * @param sharp    true for a sharp and false for a natural
+     * @param octave   The octave (relative to middle C) in [-128, 127]
+     * @param type     1 for whole notes, 2 for half notes, etc...
+     * @param dotted   Whether the note is dotted
+     * @return         The packed representation (or INVALID)
+     */
+    public static int pack(char pitch, boolean sharp, int octave,
+                           int type, boolean dotted)
+    {
+       int       packed;
+
+       if ((pitch > 0xff)                      ||
+           (octave < -OCTAVE_BIAS)             || 
+           (octave >= OCTAVE_BIAS)             ||
+           (type < 0) || (type > MAX_TYPE)        ) return INVALID;
+
+       packed = pitch | ((octave + OCTAVE_BIAS) << OCTAVE_SHIFT) |
+                (type << TYPE_SHIFT);
+       if (sharp)  packed = packed | SHARP;
+       if (dotted) packed = packed | DOTTED;
+
+       return packed;
+    }
+
     /**
      * <p>
      * Parse a String representation of a note and construct a Note
@@ -29,48 +119,11 @@ public class NoteFactory
      */
     public static Note parseNote(String s)
     {
-        boolean           dotted, sharp;
-        char              pitch, sharpChar;
-        int               duration, octave, octaveEnd;
-        Note              theNote;
-        String            durationString, octaveString, token;
-        StringTokenizer   st;
-        
-        st = new StringTokenizer(s, ", ");
-
-        try
-        {
-           token = st.nextToken();
+        int               packed;
         
-           // Determine the pitch
-           pitch = token.charAt(0);
-           
-           // Determine if this is a sharp or a natural
-           sharp = false;        
-           if (token.length() == 2)
-           {
-              sharpChar = token.charAt(1);
-              if (sharpChar == '#') sharp = true; // ASCII 35
-           }
-           
-           // Detemine the octave (relative to middle C)
-           octaveString = st.nextToken();
-           octave       = Integer.parseInt(octaveString);
-           
-           // Determine the duration (which has an arbitrary length)
-           dotted         = false;
-           durationString = st.nextToken();
-           if (durationString.endsWith(".")) dotted = true;
-           duration = (int)Double.parseDouble(durationString);
-           
-           // Construct a new Note
-           theNote = new Note(pitch, sharp, octave, duration, dotted);
-        }
-        catch (NoSuchElementException nsee)
-        {
-           theNote = null;           
-        }
+        packed = ScoreParser.parseNote(s, 0, s.length());
+        if (packed == INVALID) return null;
         
-        return theNote;
+        return createNote(packed);
     }
 }
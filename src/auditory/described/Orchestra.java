@@ -1,26 +1,53 @@
 package auditory.described;
 
-import java.io.InputStream;
-import java.net.URL;
 import java.util.*;
 import javax.sound.midi.*;
 
 import event.*;
-import io.*;
 
 /**
  * An encapsulation of an orchestra
  *
+ * By default, the Score is compiled into a Timeline that is presented
+ * by a TimelinePlayer (i.e., in a dedicated thread that only wakes
+ * up when a note starts or stops).  Alternatively, the Score can be
+ * rendered each time a Metronome ticks, or compiled into a
+ * Sequence that is played by a Sequencer (in which case the
+ * synthesizer is responsible for all of the timing).
+ *
+ * Any number of Orchestra objects can play at the same time on
+ * one Synthesizer.  Each Part is played on a MidiChannel obtained
+ * from a ChannelAllocator (using the priority of the Orchestra)
+ * when the Orchestra starts and the channels are released when it
+ * stops.  A Part that doesn't get a channel (e.g., when the Score
+ * has more parts than the Synthesizer has channels) is silent.  The
+ * messages from a Sequencer are also sent through the allocated
+ * channels, so the parts whose channels are stolen go quiet no matter
+ * how the Score is being played.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public class Orchestra implements MetronomeListener
 {
-    private Hashtable<String, Instrument>      instruments;
+    private ArrayList<AllocatedChannel>        channels;
+    private ChannelAllocator                   allocator;
+    private int                                mode, priority;
     private Metronome                          metronome;    
-    private MidiChannel[]                      channels;
     private Score                              score;    
+    private Sequencer                          sequencer;
+    private TimelinePlayer                     player;
+
+    /**
+     * The default priority (when allocating channels)
+     */
+    public static final int                    DEFAULT_PRIORITY = 0;
+
+    private static final int                   STOPPED   = 0;
+    private static final int                   TIMELINE  = 1;
+    private static final int                   METRONOME = 2;
+    private static final int                   SEQUENCER = 3;
 
     /**
      * Explicit Value Constructor
@@ -29,7 +56,7 @@ public class Orchestra implements MetronomeListener
      */
     public Orchestra(Score score) throws MidiUnavailableException 
     {
-       this(score, new Metronome(10));       
+       this(score, null);       
     }
     
 
@@ -37,66 +64,102 @@ public class Orchestra implements MetronomeListener
      * Explicit Value Constructor
      *
      * @param score      The Score to play
-     * @param metronome  The Metronome to use
+     * @param metronome  The Metronome to use (or null to use a TimelinePlayer)
      */
     public Orchestra(Score score, Metronome metronome)
                                   throws MidiUnavailableException 
     {
-       Instrument[]    loaded;
-       Soundbank       soundbank;
-       Synthesizer     synthesizer;
+       this(score, metronome, ChannelAllocator.getInstance());
+    }
 
+    /**
+     * Explicit Value Constructor
+     *
+     * @param score      The Score to play
+     * @param metronome  The Metronome to use (or null to use a TimelinePlayer)
+     * @param allocator  The ChannelAllocator to get channels from
+     */
+    public Orchestra(Score score, Metronome metronome, 
+                     ChannelAllocator allocator)
+    {
        this.score     = score;
        this.metronome = metronome;
-       metronome.addListener(this);       
+       this.allocator = allocator;
+       if (metronome != null) metronome.addListener(this);       
               
-       instruments  = new Hashtable<String, Instrument>();
-       
-       synthesizer = MidiSystem.getSynthesizer();
-       synthesizer.open();
-       soundbank = synthesizer.getDefaultSoundbank();
+       channels = new ArrayList<AllocatedChannel>();
+       mode     = STOPPED;
+       priority = DEFAULT_PRIORITY;
+    }
+
+    /**
+     * Allocate a MidiChannel for each Part (releasing the channels
+     * that are currently allocated, if any) and have it use the
+     * appropriate instrument
+     *
+     * @return   The MIDI channel for each Part (or -1 if there
+     *           wasn't a channel for it)
+     */
+    private int[] allocateChannels()
+    {
+       AllocatedChannel            channel;
+       Enumeration<Part>           e;
+       Instrument                  instrument;       
+       int                         i;       
+       int[]                       numbers;
+       Patch                       patch;       
+       Part                        part;
 
-       if (soundbank == null) soundbank = findSoundbank();
+       releaseChannels();
 
-       synthesizer.loadAllInstruments(soundbank);
+       e = score.getParts();
+       while (e.hasMoreElements())
+       {
+          part       = e.nextElement();
 
-       channels    = synthesizer.getChannels();
+          // All of the parts have the same priority, so a Part that
+          // doesn't get a channel can't take one from an earlier Part
+          channel    = allocator.allocate(priority);
+          channels.add(channel);
+
+          if (channel != null)
+          {
+             // Have the channel use the appropriate instrument
+             instrument = allocator.getInstrument(
+                                       score.getInstrumentName(part));
+             if (instrument == null)
+             {
+                channel.programChange(0, 0);
+             }
+             else
+             {
+                patch = instrument.getPatch();
+                channel.programChange(patch.getBank(), 
+                                      patch.getProgram());
+             }
+          }
+          score.setChannel(part, channel);             
+       }
 
-       loaded = synthesizer.getLoadedInstruments();
-       for (int i=0; i<loaded.length; i++)
+       numbers = new int[channels.size()];
+       for (i=0; i<numbers.length; i++)
        {
-          instruments.put(loaded[i].getName(), loaded[i]);
+          channel = channels.get(i);
+          if (channel == null) numbers[i] = -1;
+          else                 numbers[i] = channel.getChannelNumber();
        }
+
+       return numbers;
     }
 
     /**
-     * Find a soundbank resource
+     * Get the priority of this Orchestra
+     *
+     * @return   The priority
      */
-    private Soundbank findSoundbank() throws MidiUnavailableException
+    public int getPriority()
     {
-       InputStream           is;       
-       ResourceFinder        finder;
-       Soundbank             sb;       
-       URL                   url;
-       
-       sb     = null;
-       
-       finder = ResourceFinder.createInstance(this);
-       is     = finder.findInputStream("soundbank-mid.gm");
-       //url    = finder.findURL("soundbank-mid.gm");
-       
-       try
-       {
-          sb  = MidiSystem.getSoundbank(is);
-          //sb  = MidiSystem.getSoundbank(url);
-       }
-       catch (Exception e)
-       {
-          throw(new MidiUnavailableException());          
-       }
-       
-
-       return sb;       
+       return priority;
     }
 
     /**
@@ -119,47 +182,231 @@ public class Orchestra implements MetronomeListener
        }
     }
 
+    /**
+     * Move this Orchestra to a particular time (while it is playing).
+     * The notes that are playing are stopped and the notes that should
+     * be sounding at that time are started.  Nothing happens if this
+     * Orchestra isn't playing.
+     *
+     * @param millis   The time (in milliseconds from the start)
+     */
+    public void seek(int millis)
+    {
+       if      (mode == SEQUENCER) 
+       {
+          sequencer.setMicrosecondPosition(Math.max(0, millis) * 1000L);
+       }
+       else if (mode == TIMELINE) 
+       {
+          player.seek(millis);
+       }
+       else if (mode == METRONOME)
+       {
+          // The Metronome may have been stopped by handleTick()
+          // at the end of the Score
+          score.seek(millis);
+          metronome.start();
+       }
+    }
+
     /**
      * Start this Orchestra
      */
     public void start()
     {
-       Enumeration<Part>           e;
-       Instrument                  instrument;       
-       int                         i;       
-       MidiChannel                 channel;       
-       String                      name;       
-       Patch                       patch;       
-       Part                        part;
-       
+       start(0);
+    }
 
-       e = score.getParts();
-       i = 0;       
+    /**
+     * Start this Orchestra at a particular time (e.g., to resume
+     * playing after it was stopped)
+     *
+     * @param millis   The time (in milliseconds from the start)
+     */
+    public void start(int millis)
+    {
+       stopPlaying();
+       allocateChannels();
 
-       while (e.hasMoreElements())
+       if (metronome == null)
        {
-          part       = e.nextElement();
-          name       = score.getInstrumentName(part);          
-          instrument = instruments.get(name);
-          
-          // Have the channel use the appropriate instrument
-          if (instrument == null)
-          {
-             channels[i].programChange(0, 0);
-          }
-          else
-          {
-             patch = instrument.getPatch();
-             channels[i].programChange(patch.getBank(), 
-                                       patch.getProgram());
-          }
-          score.setChannel(part, channels[i]);             
-
+          // Schedule the notes
+          player = new TimelinePlayer(score.createTimeline());
+          player.start(millis);
+          mode   = TIMELINE;
+       }
+       else
+       {
+          // Start the metronome
           score.upbeat(metronome);
+          if (millis > 0) score.seek(millis);
+          metronome.start();
+          mode   = METRONOME;
        }
-              
-       
-       // Start the metronome
-       metronome.start();
+    }
+
+    /**
+     * Start this Orchestra using a Sequencer (i.e., compile the
+     * Score into a Sequence and have the Sequencer send it to the
+     * synthesizer)
+     */
+    public void startSequencer() throws MidiUnavailableException
+    {
+       int[]             numbers;
+       Sequence          sequence;
+
+       stopPlaying();
+       numbers = allocateChannels();
+       try
+       {
+          sequence = SequenceFactory.createSequence(score, 
+                                                    allocator.getSoundbank(),
+                                                    numbers);
+       }
+       catch (InvalidMidiDataException imde)
+       {
+          throw(new MidiUnavailableException(imde.getMessage()));
+       }
+
+       if (sequencer == null)
+       {
+          // Don't connect the Sequencer to the default synthesizer
+          sequencer = MidiSystem.getSequencer(false);
+          sequencer.open();
+       }
+
+       // Send each message through the AllocatedChannel for its part
+       // (so that nothing is sent once the channel has been stolen)
+       sequencer.getTransmitter().setReceiver(new ChannelRouter(channels));
+
+       try
+       {
+          sequencer.setSequence(sequence);
+       }
+       catch (InvalidMidiDataException imde)
+       {
+          throw(new MidiUnavailableException(imde.getMessage()));
+       }
+
+       sequencer.setTickPosition(0);
+       sequencer.start();
+       mode = SEQUENCER;
+    }
+
+    /**
+     * Release the channels that are allocated to this Orchestra
+     */
+    private void releaseChannels()
+    {
+       for (AllocatedChannel channel : channels)
+       {
+          if (channel != null) allocator.release(channel);
+       }
+       channels.clear();
+    }
+
+    /**
+     * Set the priority of this Orchestra (which is used the next
+     * time it starts)
+     *
+     * @param priority   The priority (higher is more important)
+     */
+    public void setPriority(int priority)
+    {
+       this.priority = priority;
+    }
+
+    /**
+     * Stop this Orchestra (and release its channels and close its
+     * Sequencer, if it has one)
+     */
+    public void stop()
+    {
+       stopPlaying();
+       releaseChannels();
+    }
+
+    /**
+     * Stop whatever is playing the Score (closing the Sequencer,
+     * if there is one)
+     */
+    private void stopPlaying()
+    {
+       // Stop all of them (not just the one for the current mode),
+       // since a Sequencer may still be open if starting it failed
+       if (sequencer != null) 
+       {
+          sequencer.stop();
+          sequencer.close();
+          sequencer = null;
+       }
+       if (player    != null) 
+       {
+          player.stop();
+          player = null;
+       }
+       if (mode == METRONOME) metronome.stop();
+
+       mode = STOPPED;
+    }
+
+    /**
+     * A ChannelRouter is the Receiver for the Sequencer of an
+     * Orchestra.  It sends each channel message to the
+     * AllocatedChannel with the same channel number, so the message is
+     * ignored if that channel has been released or stolen.  Other
+     * messages (e.g., system exclusive messages) would affect every
+     * Score on the Synthesizer, so they are ignored.
+     */
+    private static class ChannelRouter implements Receiver
+    {
+        private AllocatedChannel[]       routes;
+
+        private static final int         CHANNELS = 16;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param channels   The AllocatedChannel objects (which may include null)
+         */
+        public ChannelRouter(List<AllocatedChannel> channels)
+        {
+           routes = new AllocatedChannel[CHANNELS];
+           for (AllocatedChannel channel : channels)
+           {
+              if (channel != null) routes[channel.getChannelNumber()] = channel;
+           }
+        }
+
+        /**
+         * Indicate that this Receiver is no longer needed
+         * (required by Receiver)
+         */
+        public void close()
+        {
+        }
+
+        /**
+         * Send a message to the appropriate AllocatedChannel
+         * (required by Receiver)
+         *
+         * @param message     The message
+         * @param timeStamp   The time stamp (in microseconds) or -1
+         */
+        public void send(MidiMessage message, long timeStamp)
+        {
+           AllocatedChannel    route;
+           ShortMessage        sm;
+
+           if (!(message instanceof ShortMessage)) return;
+
+           // System messages (which start at MIDI_TIME_CODE) don't
+           // have a channel
+           sm = (ShortMessage)message;
+           if (sm.getStatus() >= ShortMessage.MIDI_TIME_CODE) return;
+
+           route = routes[sm.getChannel()];
+           if (route != null) route.send(message, timeStamp);
+        }
     }
 }
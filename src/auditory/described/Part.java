@@ -18,13 +18,19 @@ import event.*;
 public class Part implements MetronomeListener
 {
     private ArrayList<Content>     sounds;
-    private double                 timeSignatureDenominator, 
+    private double                 millisPerBeat, 
+                                   timeSignatureDenominator, 
                                    timeSignatureNumerator;
-    private int                    millisPerMeasure, stopTime;
+    private int                    millisPerMeasure, origin;
+    private int[]                  startTimes;
 
-    private Content                currentContent, 
-                                   previousContent;
-    private Iterator<Content>      iterator;    
+    // The playback cursor (i.e., the positions of the Content that
+    // should be sounding and the Content that is sounding), since
+    // Content objects may be shared and don't know whether they
+    // are playing
+    private int                    current, sounding;
+    private boolean                listening;
+    private volatile int           seekTime;
     private Metronome              metronome; // Not Owned    
 
     /**
@@ -33,6 +39,9 @@ public class Part implements MetronomeListener
     public Part()
     {
        sounds       = new ArrayList<Content>();
+       current      = -1;
+       sounding     = -1;
+       seekTime     = -1;
     }
 
     /**
@@ -42,7 +51,117 @@ public class Part implements MetronomeListener
      */
     public void add(Content c)
     {
-       if (c != null) sounds.add(c);
+       if (c != null) 
+       {
+          sounds.add(c);
+          startTimes = null;
+       }
+    }
+
+    /**
+     * Get the Content at a particular position in this Part
+     *
+     * @param index   The position
+     * @return        The Content
+     */
+    public Content getContent(int index)
+    {
+       return sounds.get(index);
+    }
+
+    /**
+     * Get the position of the Content that is sounding at a
+     * particular time (using a binary search of the start times)
+     *
+     * @param millis   The time (in milliseconds from the start)
+     * @return         The position (or -1 if the time is after the end)
+     */
+    public int getContentIndex(int millis)
+    {
+       int        high, low, middle, n;
+       int[]      times;
+
+       times = getStartTimes();
+       n     = times.length - 1;
+       if (millis >= times[n]) return -1;
+
+       // Find the last Content that starts at or before the time
+       // (so that Content with no duration is skipped)
+       low  = 0;
+       high = n - 1;
+       while (low < high)
+       {
+          middle = (low + high + 1) >>> 1;
+          if (times[middle] <= millis) low  = middle;
+          else                         high = middle - 1;
+       }
+
+       return low;
+    }
+
+    /**
+     * Get the duration of a Content (based on the tempo and 
+     * time signature of this Part)
+     *
+     * @param c   The Content
+     * @return    The duration (in milliseconds)
+     */
+    public int getDuration(Content c)
+    {
+       double   beats;
+
+       beats = (1.0/(double)c.getType()) * (double)timeSignatureDenominator;
+       if (c.isDotted()) beats = beats * 1.5;
+
+       return (int)(beats * millisPerBeat);
+    }
+
+    /**
+     * Get the number of Content objects in this Part
+     *
+     * @return   The number of Content objects
+     */
+    public int getNumberOfContents()
+    {
+       return sounds.size();
+    }
+
+    /**
+     * Get the time at which the Content at a particular position
+     * starts (based on the tempo and time signature of this Part)
+     *
+     * @param index   The position (or the number of Content objects
+     *                for the duration of this Part)
+     * @return        The time (in milliseconds from the start)
+     */
+    public int getStartTime(int index)
+    {
+       return getStartTimes()[index];
+    }
+
+    /**
+     * Get the (cumulative) start times of the Content objects
+     * (calculating them if necessary)
+     *
+     * @return   The start times (and the duration of this Part)
+     */
+    private int[] getStartTimes()
+    {
+       int[]      times;
+
+       times = startTimes;
+       if (times == null)
+       {
+          times    = new int[sounds.size() + 1];
+          times[0] = 0;
+          for (int i=0; i<sounds.size(); i++)
+          {
+             times[i+1] = times[i] + getDuration(sounds.get(i));
+          }
+          startTimes = times;
+       }
+
+       return times;
     }
 
     /**
@@ -53,53 +172,72 @@ public class Part implements MetronomeListener
      */
     public void handleTick(int millis)
     {
-       double   beats, millisPerBeat, type;    
-
-       if (iterator == null) 
+       if (metronome == null) 
           throw(new IllegalStateException("No upbeat()"));
 
-       if (millis >= stopTime)
+       // Synchronize with the Metronome (at the first tick
+       // and after a seek)
+       if (seekTime >= 0)
        {
-          if (currentContent != null) 
-             currentContent.setAudible(false);
+          origin   = millis - seekTime;
+          seekTime = -1;
+       }
 
-          if (iterator.hasNext())
+       current = getContentIndex(millis - origin);
+       if (current < 0)
+       {
+          synchronized(this)
           {
-             previousContent = currentContent;             
-             currentContent  = iterator.next();
-
-             // This calculation needn't really be done each iteration
-             millisPerBeat = 1.0/(double)timeSignatureNumerator *
-                             millisPerMeasure;
-
-             beats        =  (1.0/(double)currentContent.getType()) * 
-                             (double)timeSignatureDenominator;
- 
-             if (currentContent.isDotted()) beats = beats * 1.5;
-            
-             stopTime = millis + (int)(beats * millisPerBeat);
-
-             currentContent.setAudible(true);             
+             if (seekTime < 0) 
+             {
+                listening = false;
+                metronome.removeListener(this);             
+             }
           }
-          else
-          {
-             metronome.removeListener(this);             
-          }          
        }
     }
 
     /**
-     * Render the current note in this Part
+     * Render the current note in this Part (i.e., stop the Content
+     * that is sounding and start the current Content if they differ)
      *
-     * @param channel  The MidiChannel to use
+     * @param channel  The MidiChannel to use (or null if the Part
+     *                 doesn't have one)
      */
     public void render(MidiChannel channel)
     {
-       if (previousContent != null) 
-          previousContent.render(channel);       
+       int            position;
+
+       if (channel == null) return;
+
+       position = current;
+       if (position != sounding)
+       {
+          if (sounding >= 0) 
+             sounds.get(sounding).stopPlaying(channel);       
+
+          if (position >= 0) 
+             sounds.get(position).startPlaying(channel);       
 
-       if (currentContent  != null) 
-          currentContent.render(channel);       
+          sounding = position;
+       }
+    }
+
+    /**
+     * Move this Part to a particular time (while it is being played
+     * by a Metronome).  The Content that is sounding is stopped (if
+     * necessary) when this Part is next rendered.
+     *
+     * @param millis   The time (in milliseconds from the start)
+     */
+    public synchronized void seek(int millis)
+    {
+       seekTime = Math.max(0, millis);
+       if ((metronome != null) && !listening)
+       {
+          listening = true;
+          metronome.addListener(this);
+       }
     }
 
     /**
@@ -110,6 +248,8 @@ public class Part implements MetronomeListener
     public void setTempo(int millisPerMeasure)
     {
        this.millisPerMeasure = millisPerMeasure;       
+       updateMillisPerBeat();
+       startTimes = null;
     }
     
 
@@ -123,6 +263,21 @@ public class Part implements MetronomeListener
     {
        this.timeSignatureNumerator   = numerator;
        this.timeSignatureDenominator = denominator;
+       updateMillisPerBeat();
+       startTimes = null;
+    }
+
+    /**
+     * Update the number of milliseconds per beat (which only changes
+     * when the tempo or time signature changes)
+     */
+    private void updateMillisPerBeat()
+    {
+       if (timeSignatureNumerator == 0.0) 
+          millisPerBeat = 0.0;
+       else
+          millisPerBeat = 1.0/(double)timeSignatureNumerator *
+                          millisPerMeasure;
     }
 
     /**
@@ -131,14 +286,14 @@ public class Part implements MetronomeListener
      *
      * @param metronome   The Metronome it will listen to
      */
-    public void upbeat(Metronome metronome)
+    public synchronized void upbeat(Metronome metronome)
     {
        this.metronome   = metronome; // For later removal
 
-       iterator         = sounds.iterator();
-       currentContent   = null;
-       previousContent  = null;
-       stopTime         = -1;       
+       current          = -1;
+       sounding         = -1;
+       seekTime         = 0;
+       listening        = true;
 
        metronome.addListener(this);       
     }
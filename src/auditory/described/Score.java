@@ -39,6 +39,60 @@ public class Score
        parts.put(part, instrument);
     }
 
+    /**
+     * Set the tempo and time signature of a Part to those
+     * of this Score
+     *
+     * @param part   The Part
+     */
+    private void configure(Part part)
+    {
+       part.setTimeSignature(timeSignatureNumerator, 
+                             timeSignatureDenominator);
+       part.setTempo(millisPerMeasure);
+    }
+
+    /**
+     * Create a Timeline (i.e., a sorted sequence of note-on and
+     * note-off events) for this Score.  The MidiChannel objects
+     * associated with the Part objects must be set first.
+     *
+     * @return   The Timeline
+     */
+    public Timeline createTimeline()
+    {
+       Enumeration<Part>           e;
+       int                         i;
+       MidiChannel[]               channels;
+       Part[]                      list;
+
+       list     = new Part[parts.size()];
+       channels = new MidiChannel[list.length];
+
+       e = parts.keys();
+       i = 0;
+       while (e.hasMoreElements())
+       {
+          list[i]     = e.nextElement();
+          channels[i] = channelTable.get(list[i]);
+          configure(list[i]);
+          i++;
+       }
+
+       return new Timeline(list, channels);
+    }
+
+    /**
+     * Get the MidiChannel associated with a Part
+     *
+     * @param part   The Part
+     * @return       The MidiChannel (or null)
+     */
+    public MidiChannel getChannel(Part part)
+    {
+       return channelTable.get(part);
+    }
+
     /**
      * Get the Part objects in this Score
      *
@@ -61,6 +115,36 @@ public class Score
        return parts.get(part);       
     }
 
+    /**
+     * Get the tempo of this Score
+     *
+     * @return  The tempo (in milliseconds per measure)
+     */
+    public int getTempo()
+    {
+       return millisPerMeasure;
+    }
+
+    /**
+     * Get the denominator of the time signature of this Score
+     *
+     * @return  The denominator
+     */
+    public int getTimeSignatureDenominator()
+    {
+       return timeSignatureDenominator;
+    }
+
+    /**
+     * Get the numerator of the time signature of this Score
+     *
+     * @return  The numerator
+     */
+    public int getTimeSignatureNumerator()
+    {
+       return timeSignatureNumerator;
+    }
+
     /**
      * Remove a Part from this Score
      *
@@ -89,15 +173,36 @@ public class Score
        }
     }
 
+    /**
+     * Move all of the Part objects in this Score to a particular
+     * time (while they are being played by a Metronome)
+     *
+     * @param millis   The time (in milliseconds from the start)
+     */
+    public void seek(int millis)
+    {
+       Enumeration<Part>           e;
+       Part                        part;
+
+       e = parts.keys();
+       while (e.hasMoreElements())
+       {
+          part       = e.nextElement();
+          configure(part);
+          part.seek(millis);
+       }
+    }
+
     /**
      * Set the MidiChannel associated with a Part
      *
      * @param part     The Part
-     * @param channel  The MidiChannel for that Part
+     * @param channel  The MidiChannel for that Part (or null for none)
      */
     public void setChannel(Part part, MidiChannel channel)
     {
-       channelTable.put(part, channel);             
+       if (channel == null) channelTable.remove(part);
+       else                 channelTable.put(part, channel);             
     }
 
     /**
@@ -137,9 +242,7 @@ public class Score
        {
           part       = e.nextElement();
           part.upbeat(metronome);
-          part.setTimeSignature(timeSignatureNumerator, 
-                                timeSignatureDenominator);
-          part.setTempo(millisPerMeasure);
+          configure(part);
        }
     }
 }
@@ -1,7 +1,7 @@
 package auditory.described;
 
 import java.io.*;
-import java.util.StringTokenizer;
+import java.net.*;
 import javax.sound.midi.MidiUnavailableException;
 
 import io.*;
@@ -11,6 +11,7 @@ import io.*;
  */
 public class ScoreFactory
 {
+    private volatile File          cacheDirectory;
     private ResourceFinder         finder;
 
     /**
@@ -18,7 +19,8 @@ public class ScoreFactory
      */
     public ScoreFactory()
     {
-       finder = ResourceFinder.createInstance();       
+       finder         = ResourceFinder.createInstance();       
+       cacheDirectory = null;
     }
 
     /**
@@ -28,7 +30,8 @@ public class ScoreFactory
      */
     public ScoreFactory(ResourceFinder finder)
     {
-       this.finder = finder;       
+       this.finder    = finder;       
+       cacheDirectory = null;
     }
     
     /**
@@ -41,50 +44,78 @@ public class ScoreFactory
                         throws IOException,
                                MidiUnavailableException 
     {
-       BufferedReader         in;
-       int                    denominator, numerator, tempo;       
-       Note                   note;
-       Part                   part;       
-       Score                  score;       
-       String                 line, voice;
-       StringTokenizer        st;
-       
-       in = new BufferedReader(new InputStreamReader(is));
-       
-       // Read the time signature and tempo
-       line        = in.readLine();
-       st          = new StringTokenizer(line, ",/");
-       numerator   = Integer.parseInt(st.nextToken());
-       denominator = Integer.parseInt(st.nextToken());
-       tempo       = Integer.parseInt(st.nextToken());
-
-       score = new Score();
-       
-       score.setTimeSignature(numerator, denominator);
-       score.setTempo(tempo);       
-
-       while ((voice = in.readLine()) != null)
-       {
-          part = PartFactory.createPart(in);
-          score.addPart(part, voice);
-       }
-       
-       return score;       
+       return ScoreParser.parse(is).createScore();
     }
     
     /**
      * Create a Score object from a file containing a string representation
      *
+     * If a cache directory has been set and the resource is a file
+     * (rather than, say, an entry in a .jar file), the parsed Score
+     * is cached in compiled form.
+     *
      * @param filename   The name of the file
      */
     public Score createScore(String filename) 
                         throws IOException,
                                MidiUnavailableException 
     {
+       CompiledScore          compiled;
+       File                   directory, source;
        InputStream            is;
+       URL                    url;
        
+       url       = finder.findURL(filename);
+       directory = cacheDirectory;
+       source    = null;
+
+       if ((directory != null) && (url != null) && 
+           "file".equals(url.getProtocol()))
+       {
+          try
+          {
+             source   = new File(url.toURI());
+             compiled = CompiledScore.read(source, directory);
+             if (compiled != null) return compiled.createScore();
+          }
+          catch (URISyntaxException | RuntimeException e)
+          {
+             // Parse the text file instead
+          }
+       }
+
        is = finder.findInputStream(filename);       
+       try
+       {
+          compiled = ScoreParser.parse(is);
+       }
+       finally
+       {
+          is.close();
+       }
+       if (source != null) compiled.write(source, directory);
        
-       return createScore(is);
+       return compiled.createScore();       
+    }
+
+    /**
+     * Get the directory that compiled scores are cached in
+     *
+     * @return   The directory (or null if scores aren't cached)
+     */
+    public File getCacheDirectory()
+    {
+       return cacheDirectory;
+    }
+
+    /**
+     * Set the directory that compiled scores are cached in
+     * (e.g., CompiledScore.getDefaultDirectory())
+     *
+     * @param directory   The directory (or null to not cache scores)
+     */
+    public void setCacheDirectory(File directory)
+    {
+       cacheDirectory = directory;
     }
 }
@@ -0,0 +1,360 @@
+package auditory.described;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * A scanner-based parser for the String representation of a Score.
+ *
+ * The complete representation is read (and decoded) at once and is
+ * then scanned character by character.  Numbers are calculated while
+ * they are being scanned and notes are packed into int values (see
+ * NoteFactory.pack()), so no String objects are created other than
+ * the names of the instruments.
+ *
+ * The representation consists of a line containing the time signature
+ * and tempo (e.g., "4/4,2000") followed by any number of parts.  Each
+ * part consists of a line containing the name of the instrument,
+ * followed by one line per note (e.g., "C#,-1,8."), followed by a
+ * line containing "X".
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class ScoreParser
+{
+    private CharSequence      text;
+    private int               length, position;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param text   The String representation of the Score
+     */
+    private ScoreParser(CharSequence text)
+    {
+       this.text = text;
+       length    = text.length();
+       position  = 0;
+    }
+
+    /**
+     * Is a character a delimiter in a note?
+     *
+     * @param c   The character
+     * @return    true if it is a delimiter
+     */
+    private static boolean isDelimiter(char c)
+    {
+       return (c == ',') || (c == ' ');
+    }
+
+    /**
+     * Is a character a separator in the time signature and tempo?
+     *
+     * @param c   The character
+     * @return    true if it is a separator
+     */
+    private static boolean isSeparator(char c)
+    {
+       return (c == ',') || (c == '/');
+    }
+
+    /**
+     * Is a part of a CharSequence equal to a String?
+     *
+     * @param s       The CharSequence
+     * @param start   The index of the first character (inclusive)
+     * @param end     The index of the last character (exclusive)
+     * @param other   The String
+     * @return        true if they are equal
+     */
+    private static boolean matches(CharSequence s, int start, int end,
+                                   String other)
+    {
+       if (end - start != other.length()) return false;
+
+       for (int i=start; i<end; i++)
+       {
+          if (s.charAt(i) != other.charAt(i-start)) return false;
+       }
+
+       return true;
+    }
+
+    /**
+     * Find the end of the current line
+     *
+     * @return   The index of the character after the end of the line
+     */
+    private int lineEnd()
+    {
+       int      end;
+       char     c;
+
+       end = position;
+       while (end < length)
+       {
+          c = text.charAt(end);
+          if ((c == '\n') || (c == '\r')) break;
+          end++;
+       }
+
+       return end;
+    }
+
+    /**
+     * Move to the start of the next line
+     *
+     * @param end   The end of the current line
+     */
+    private void nextLine(int end)
+    {
+       position = end;
+       if (position < length)
+       {
+          // The line ends with "\n", "\r", or "\r\n"
+          if ((text.charAt(position) == '\r') && (position+1 < length) &&
+              (text.charAt(position+1) == '\n')) position += 2;
+          else                                   position += 1;
+       }
+    }
+
+    /**
+     * Parse the String representation of a Score
+     *
+     * @param is   The stream to read the representation from
+     * @return     The CompiledScore
+     * @throws NumberFormatException if a number is malformed
+     */
+    public static CompiledScore parse(InputStream is) throws IOException
+    {
+       ByteArrayOutputStream     out;
+       byte[]                    buffer;
+       int                       n;
+
+       out    = new ByteArrayOutputStream();
+       buffer = new byte[8192];
+       while ((n = is.read(buffer)) > 0)
+       {
+          out.write(buffer, 0, n);
+       }
+
+       return parse(Charset.defaultCharset().decode(
+                       ByteBuffer.wrap(out.toByteArray())));
+    }
+
+    /**
+     * Parse the String representation of a Score
+     *
+     * @param text   The representation
+     * @return       The CompiledScore
+     * @throws NumberFormatException if a number is malformed
+     */
+    public static CompiledScore parse(CharSequence text) throws IOException
+    {
+       ArrayList<int[]>          notes;
+       ArrayList<String>         instruments;
+       int                       count, end, packed, start, tokenEnd;
+       int[]                     header, part;
+       ScoreParser               parser;
+
+       parser = new ScoreParser(text);
+       if (parser.length == 0) throw(new IOException("No time signature"));
+
+       // The time signature and tempo (e.g., 4/4,2000)
+       end    = parser.lineEnd();
+       start  = parser.position;
+       header = new int[3];
+       for (int h=0; h<header.length; h++)
+       {
+          while ((start < end) && isSeparator(text.charAt(start))) start++;
+
+          tokenEnd = start;
+          while ((tokenEnd < end) && !isSeparator(text.charAt(tokenEnd)))
+             tokenEnd++;
+
+          header[h] = parseInt(text, start, tokenEnd);
+          start     = tokenEnd;
+       }
+       parser.nextLine(end);
+
+       instruments = new ArrayList<String>();
+       notes       = new ArrayList<int[]>();
+       while (parser.position < parser.length)
+       {
+          // The name of the instrument
+          end = parser.lineEnd();
+          instruments.add(text.subSequence(parser.position, end).toString());
+          parser.nextLine(end);
+
+          // The notes
+          part  = new int[64];
+          count = 0;
+          while (parser.position < parser.length)
+          {
+             end = parser.lineEnd();
+             if (matches(text, parser.position, end, "X"))
+             {
+                parser.nextLine(end);
+                break;
+             }
+
+             if (end > parser.position)
+             {
+                packed = parseNote(text, parser.position, end);
+                if (packed != NoteFactory.INVALID)
+                {
+                   if (count == part.length)
+                      part = Arrays.copyOf(part, 2*count);
+                   part[count++] = packed;
+                }
+             }
+             parser.nextLine(end);
+          }
+          notes.add(Arrays.copyOf(part, count));
+       }
+
+       return new CompiledScore(header[0], header[1], header[2],
+                                instruments.toArray(new String[0]),
+                                notes.toArray(new int[0][]));
+    }
+
+    /**
+     * Parse an int
+     *
+     * @param s       The CharSequence containing the int
+     * @param start   The index of the first character (inclusive)
+     * @param end     The index of the last character (exclusive)
+     * @return        The int
+     * @throws NumberFormatException if it is malformed
+     */
+    private static int parseInt(CharSequence s, int start, int end)
+                       throws NumberFormatException
+    {
+       boolean     negative;
+       char        c;
+       int         i, value;
+
+       if (start >= end) throw(new NumberFormatException("Missing number"));
+
+       i        = start;
+       negative = false;
+       c        = s.charAt(i);
+       if (c == '-')
+       {
+          negative = true;
+          i++;
+       }
+       else if (c == '+')
+       {
+          i++;
+       }
+       if (i == end) throw(new NumberFormatException("Missing digits"));
+
+       value = 0;
+       for (; i<end; i++)
+       {
+          c = s.charAt(i);
+          if ((c < '0') || (c > '9'))
+             throw(new NumberFormatException(
+                      s.subSequence(start, end).toString()));
+          value = value*10 + (c - '0');
+       }
+
+       if (negative) value = -value;
+
+       return value;
+    }
+
+    /**
+     * <p>
+     * Parse the String representation of a note (e.g., "C ,0,1" is a
+     * middle C whole note and "D#,-1,8." is a dotted D sharp eighth
+     * note one octave below middle C).
+     * </p>
+     *
+     * @param s       The CharSequence containing the representation
+     * @param start   The index of the first character (inclusive)
+     * @param end     The index of the last character (exclusive)
+     * @return        The packed note (or NoteFactory.INVALID if a
+     *                part of the note is missing)
+     * @throws NumberFormatException if a number is malformed
+     */
+    public static int parseNote(CharSequence s, int start, int end)
+                      throws NumberFormatException
+    {
+       boolean     dotted, sharp;
+       char        c, pitch;
+       int         durationEnd, durationStart, octave, octaveEnd,
+                   octaveStart, pitchEnd, pitchStart, type;
+
+       // Find the three tokens
+       pitchStart    = skip(s, start, end);
+       pitchEnd      = scan(s, pitchStart, end);
+       octaveStart   = skip(s, pitchEnd, end);
+       octaveEnd     = scan(s, octaveStart, end);
+       durationStart = skip(s, octaveEnd, end);
+       durationEnd   = scan(s, durationStart, end);
+       if (durationStart == durationEnd) return NoteFactory.INVALID;
+
+       // Determine the pitch and whether this is a sharp or a natural
+       pitch = s.charAt(pitchStart);
+       sharp = (pitchEnd - pitchStart == 2) && (s.charAt(pitchStart+1) == '#');
+
+       // Determine the octave (relative to middle C)
+       octave = parseInt(s, octaveStart, octaveEnd);
+
+       // Determine the duration (which has an arbitrary length)
+       dotted = (s.charAt(durationEnd-1) == '.');
+       type   = 0;
+       for (int i=durationStart; i<durationEnd; i++)
+       {
+          c = s.charAt(i);
+          if (c == '.') break;
+
+          if ((c < '0') || (c > '9'))
+          {
+             // Something unusual (e.g., an exponent)
+             type = (int)Double.parseDouble(
+                           s.subSequence(durationStart, durationEnd).toString());
+             break;
+          }
+          type = type*10 + (c - '0');
+       }
+
+       return NoteFactory.pack(pitch, sharp, octave, type, dotted);
+    }
+
+    /**
+     * Find the end of a token in a note
+     *
+     * @param s       The CharSequence
+     * @param start   The start of the token
+     * @param end     The end of the note
+     * @return        The index of the character after the token
+     */
+    private static int scan(CharSequence s, int start, int end)
+    {
+       while ((start < end) && !isDelimiter(s.charAt(start))) start++;
+
+       return start;
+    }
+
+    /**
+     * Skip the delimiters in a note
+     *
+     * @param s       The CharSequence
+     * @param start   The index to start at
+     * @param end     The end of the note
+     * @return        The index of the first character that isn't a delimiter
+     */
+    private static int skip(CharSequence s, int start, int end)
+    {
+       while ((start < end) && isDelimiter(s.charAt(start))) start++;
+
+       return start;
+    }
+}
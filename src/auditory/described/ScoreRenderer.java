@@ -0,0 +1,274 @@
+package auditory.described;
+
+import java.io.*;
+import java.lang.reflect.*;
+import java.util.*;
+import javax.sound.midi.*;
+import javax.sound.sampled.*;
+
+import auditory.sampled.*;
+import io.*;
+
+/**
+ * A ScoreRenderer renders a Score (offline) into a BufferedSound.
+ *
+ * The Score is compiled into a Sequence and every message in it is
+ * sent (with its time stamp) to a software synthesizer whose output
+ * is read as an AudioInputStream rather than being sent to a line.
+ * Hence, the BufferedSound is produced as quickly as the synthesizer
+ * can calculate it (rather than in real time) and no synthesizer
+ * needs to be running while the BufferedSound is presented.
+ *
+ * Note: This requires the software synthesizer in the JDK (whose
+ * stream interface is not part of the public API).  On Java 9 and
+ * later, the package com.sun.media.sound in the module java.desktop
+ * must be exported to the application, either with the JVM option
+ * --add-exports=java.desktop/com.sun.media.sound=ALL-UNNAMED (which
+ * must be preceded by -XX:+IgnoreUnrecognizedVMOptions if the same
+ * command line is also used with Java 8) or with the Add-Exports
+ * attribute in the manifest of an executable .jar file.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class ScoreRenderer
+{
+    private BufferedSoundFactory      factory;
+    private float                     sampleRate;
+
+    /**
+     * The default sampling rate
+     */
+    public static final float         DEFAULT_SAMPLE_RATE = 44100.0f;
+
+    /**
+     * The amount of time that is rendered after the last note
+     * stops (so that it can decay)
+     */
+    public static final long          TAIL_MICROSECONDS   = 1000000L;
+
+    private static final int          SET_TEMPO           = 0x51;
+
+    /**
+     * Default Constructor
+     */
+    public ScoreRenderer()
+    {
+       this(DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param sampleRate   The sampling rate of the result (in Hz)
+     */
+    public ScoreRenderer(float sampleRate)
+    {
+       this.sampleRate = sampleRate;
+       factory         = new BufferedSoundFactory();
+    }
+
+    /**
+     * Find the soundbank resource (for synthesizers that don't
+     * have a default soundbank)
+     *
+     * @return   The Soundbank
+     */
+    private Soundbank findSoundbank() throws MidiUnavailableException
+    {
+       InputStream           is;
+       ResourceFinder        finder;
+
+       finder = ResourceFinder.createInstance(this);
+       is     = finder.findInputStream("soundbank-mid.gm");
+
+       try
+       {
+          return MidiSystem.getSoundbank(new BufferedInputStream(is));
+       }
+       catch (Exception e)
+       {
+          throw(new MidiUnavailableException("No soundbank"));
+       }
+    }
+
+    /**
+     * Open the output of a (software) synthesizer as a stream
+     *
+     * @param synthesizer   The Synthesizer
+     * @param format        The format of the stream
+     * @return              The stream
+     */
+    private AudioInputStream openStream(Synthesizer synthesizer,
+                                        AudioFormat format)
+                             throws MidiUnavailableException
+    {
+       Method                     method;
+       MidiUnavailableException   mue;
+
+       try
+       {
+          // AudioSynthesizer.openStream(AudioFormat, Map)
+          method = null;
+          for (Class<?> c : synthesizer.getClass().getInterfaces())
+          {
+             if (c.getName().equals("com.sun.media.sound.AudioSynthesizer"))
+                method = c.getMethod("openStream", AudioFormat.class,
+                                     Map.class);
+          }
+
+          if (method == null)
+             throw(new MidiUnavailableException("Not a software synthesizer"));
+
+          return (AudioInputStream)method.invoke(synthesizer, format, null);
+       }
+       catch (NoSuchMethodException | IllegalAccessException e)
+       {
+          // On JDK 9 and later, this requires
+          // --add-exports=java.desktop/com.sun.media.sound=ALL-UNNAMED
+          mue = new MidiUnavailableException(
+                   "The software synthesizer is not accessible");
+          mue.initCause(e);
+          throw(mue);
+       }
+       catch (InvocationTargetException ite)
+       {
+          if (ite.getCause() instanceof MidiUnavailableException)
+             throw((MidiUnavailableException)ite.getCause());
+
+          mue = new MidiUnavailableException(
+                   "The software synthesizer can't be opened");
+          mue.initCause(ite.getCause());
+          throw(mue);
+       }
+    }
+
+    /**
+     * Render a Score
+     *
+     * @param score   The Score
+     * @return        The BufferedSound
+     */
+    public BufferedSound render(Score score)
+                         throws IOException, MidiUnavailableException
+    {
+       AudioFormat         format;
+       AudioInputStream    stream;
+       BufferedSound       sound;
+       long                frames, length;
+       Receiver            receiver;
+       Sequence            sequence;
+       Soundbank           soundbank;
+       Synthesizer         synthesizer;
+
+       synthesizer = MidiSystem.getSynthesizer();
+       format      = new AudioFormat(sampleRate, 16, 2, true, false);
+       stream      = openStream(synthesizer, format);
+       try
+       {
+          soundbank = synthesizer.getDefaultSoundbank();
+          if (soundbank == null)
+          {
+             soundbank = findSoundbank();
+             synthesizer.loadAllInstruments(soundbank);
+          }
+
+          try
+          {
+             sequence = SequenceFactory.createSequence(score, soundbank);
+          }
+          catch (InvalidMidiDataException imde)
+          {
+             throw(new MidiUnavailableException(imde.getMessage()));
+          }
+
+          // Queue all of the messages (the synthesizer will
+          // process them when it reaches their time stamps)
+          receiver = synthesizer.getReceiver();
+          length   = send(sequence, receiver) + TAIL_MICROSECONDS;
+
+          // Read exactly the right number of frames
+          frames = (long)(length / 1000000.0 * sampleRate);
+          stream = new AudioInputStream(stream, format, frames);
+          try
+          {
+             sound = factory.createBufferedSound(stream);
+          }
+          catch (UnsupportedAudioFileException uafe)
+          {
+             throw(new IOException(uafe.getMessage()));
+          }
+       }
+       finally
+       {
+          stream.close();
+          synthesizer.close();
+       }
+
+       return sound;
+    }
+
+    /**
+     * Send all of the (short) messages in a Sequence to a Receiver,
+     * time stamped in microseconds
+     *
+     * @param sequence   The Sequence
+     * @param receiver   The Receiver
+     * @return           The time stamp of the last message
+     */
+    private long send(Sequence sequence, Receiver receiver)
+    {
+       ArrayList<MidiEvent>    events;
+       byte[]                  data;
+       double                  microsPerTick;
+       long                    lastTick, time;
+       MidiMessage             message;
+       Track[]                 tracks;
+
+       // Merge the tracks (a stable sort keeps the order of
+       // events with the same tick)
+       events = new ArrayList<MidiEvent>();
+       tracks = sequence.getTracks();
+       for (int t=0; t<tracks.length; t++)
+       {
+          for (int i=0; i<tracks[t].size(); i++)
+          {
+             events.add(tracks[t].get(i));
+          }
+       }
+       Collections.sort(events, new Comparator<MidiEvent>()
+       {
+          public int compare(MidiEvent a, MidiEvent b)
+          {
+             return Long.compare(a.getTick(), b.getTick());
+          }
+       });
+
+       // 120 beats per minute until there is a tempo message
+       microsPerTick = 500000.0 / sequence.getResolution();
+       lastTick      = 0;
+       time          = 0;
+       for (MidiEvent event : events)
+       {
+          time    += Math.round((event.getTick() - lastTick) * microsPerTick);
+          lastTick = event.getTick();
+          message  = event.getMessage();
+
+          if (message instanceof ShortMessage)
+          {
+             receiver.send(message, time);
+          }
+          else if ((message instanceof MetaMessage) &&
+                   (((MetaMessage)message).getType() == SET_TEMPO))
+          {
+             data          = ((MetaMessage)message).getData();
+             microsPerTick = (double)(((data[0] & 0xff) << 16) |
+                                      ((data[1] & 0xff) <<  8) |
+                                       (data[2] & 0xff))
+                             / sequence.getResolution();
+          }
+       }
+
+       return time;
+    }
+}
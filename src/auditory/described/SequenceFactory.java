@@ -0,0 +1,319 @@
+package auditory.described;
+
+import java.io.*;
+import java.util.*;
+import javax.sound.midi.*;
+
+/**
+ * A factory that compiles a Score into a (standard) MIDI Sequence.
+ *
+ * A Sequence can be played by a Sequencer (so that the synthesizer,
+ * rather than a thread in the application, is responsible for the
+ * timing of the notes) and can be written to a standard MIDI file.
+ *
+ * Each Part is compiled into its own Track (on its own MIDI channel,
+ * skipping the percussion channel).  Durations are measured in ticks
+ * (with RESOLUTION ticks per quarter note), so dotted notes down to
+ * sixty-fourth notes are represented exactly.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class SequenceFactory
+{
+    /**
+     * The number of ticks per quarter note
+     */
+    public static final int     RESOLUTION       = 480;
+
+    private static final int    DEFAULT_MPQ      = 500000; // 120 bpm
+    private static final int    PERCUSSION       = 9;
+    private static final int    SET_TEMPO        = 0x51;
+    private static final int    TIME_SIGNATURE   = 0x58;
+    private static final int    VELOCITY         = 127;
+
+    /**
+     * Add a ShortMessage to a Track
+     *
+     * @param track     The Track
+     * @param command   The command (e.g., ShortMessage.NOTE_ON)
+     * @param channel   The MIDI channel
+     * @param data1     The first data byte
+     * @param data2     The second data byte
+     * @param tick      The time of the message (in ticks)
+     */
+    private static void add(Track track, int command, int channel,
+                            int data1, int data2, long tick)
+                        throws InvalidMidiDataException
+    {
+       ShortMessage     message;
+
+       message = new ShortMessage();
+       message.setMessage(command, channel, data1, data2);
+       track.add(new MidiEvent(message, tick));
+    }
+
+    /**
+     * Add the note-on or note-off messages for a Content to a Track
+     *
+     * @param track     The Track
+     * @param content   The Content
+     * @param channel   The MIDI channel
+     * @param on        true for note-on messages; false for note-off
+     * @param tick      The time of the messages (in ticks)
+     */
+    private static void addNotes(Track track, Content content, int channel,
+                                 boolean on, long tick)
+                        throws InvalidMidiDataException
+    {
+       int                command;
+       Iterator<Note>     notes;
+
+       if (on) command = ShortMessage.NOTE_ON;
+       else    command = ShortMessage.NOTE_OFF;
+
+       if (content instanceof Note)
+       {
+          addNote(track, (Note)content, command, channel, tick);
+       }
+       else if (content instanceof Chord)
+       {
+          notes = ((Chord)content).getNotes();
+          while (notes.hasNext())
+          {
+             addNote(track, notes.next(), command, channel, tick);
+          }
+       }
+    }
+
+    /**
+     * Add the message for one Note to a Track (unless it is a rest)
+     *
+     * @param track     The Track
+     * @param note      The Note
+     * @param command   ShortMessage.NOTE_ON or ShortMessage.NOTE_OFF
+     * @param channel   The MIDI channel
+     * @param tick      The time of the message (in ticks)
+     */
+    private static void addNote(Track track, Note note, int command,
+                                int channel, long tick)
+                        throws InvalidMidiDataException
+    {
+       int       midi;
+
+       if (note != null)
+       {
+          midi = note.getMIDI();
+          if ((midi >= 0) && (midi <= 127))
+             add(track, command, channel, midi, VELOCITY, tick);
+       }
+    }
+
+    /**
+     * Get the MIDI channel to use for a Part
+     *
+     * @param index   The index of the Part
+     * @return        The MIDI channel
+     */
+    public static int channelFor(int index)
+    {
+       int      channel;
+
+       // There are 15 melodic channels
+       channel = index % 15;
+       if (channel >= PERCUSSION) channel++;
+
+       return channel;
+    }
+
+    /**
+     * Compile a Score into a Sequence (without selecting instruments)
+     *
+     * @param score   The Score
+     * @return        The Sequence
+     */
+    public static Sequence createSequence(Score score)
+                           throws InvalidMidiDataException
+    {
+       return createSequence(score, null);
+    }
+
+    /**
+     * Compile a Score into a Sequence
+     *
+     * @param score      The Score
+     * @param soundbank  The Soundbank containing the instruments (or null)
+     * @return           The Sequence
+     */
+    public static Sequence createSequence(Score score, Soundbank soundbank)
+                           throws InvalidMidiDataException
+    {
+       return createSequence(score, soundbank, null);
+    }
+
+    /**
+     * Compile a Score into a Sequence using particular MIDI channels
+     * (e.g., channels allocated by a ChannelAllocator)
+     *
+     * @param score      The Score
+     * @param soundbank  The Soundbank containing the instruments (or null)
+     * @param numbers    The MIDI channel for each Part in the order they
+     *                   are returned by getParts(), with -1 for a Part
+     *                   that should be omitted (or null to use channelFor())
+     * @return           The Sequence
+     */
+    public static Sequence createSequence(Score score, Soundbank soundbank,
+                                          int[] numbers)
+                           throws InvalidMidiDataException
+    {
+       boolean               first;
+       Content               content;
+       Enumeration<Part>     e;
+       Instrument            instrument;
+       int                   channel, denominator, index, mpq, numerator;
+       long                  duration, tick;
+       MetaMessage           meta;
+       Part                  part;
+       Sequence              sequence;
+       Track                 track;
+
+       sequence    = new Sequence(Sequence.PPQ, RESOLUTION);
+       numerator   = score.getTimeSignatureNumerator();
+       denominator = score.getTimeSignatureDenominator();
+
+       // The tempo (in microseconds per quarter note)
+       //    mpq   =  ms/measure                 / beats/measure * 1000 *
+       //             beats/quarter
+       if ((numerator > 0) && (denominator > 0) && (score.getTempo() > 0))
+          mpq      = (int)Math.round((double)score.getTempo() / numerator *
+                                     1000.0 * (denominator / 4.0));
+       else
+          mpq      = DEFAULT_MPQ;
+
+       track = sequence.createTrack();
+       meta  = new MetaMessage();
+       meta.setMessage(SET_TEMPO, new byte[] {(byte)(mpq >> 16),
+                                              (byte)(mpq >>  8),
+                                              (byte)(mpq      )}, 3);
+       track.add(new MidiEvent(meta, 0));
+
+       meta  = new MetaMessage();
+       meta.setMessage(TIME_SIGNATURE,
+                       new byte[] {(byte)numerator,
+                                   (byte)(31 - Integer.numberOfLeadingZeros(
+                                                  Math.max(1, denominator))),
+                                   (byte)24, (byte)8}, 4);
+       track.add(new MidiEvent(meta, 0));
+
+       first = true;
+       index = 0;
+       e     = score.getParts();
+       while (e.hasMoreElements())
+       {
+          part    = e.nextElement();
+          if (numbers == null) channel = channelFor(index);
+          else                 channel = numbers[index];
+          index++;
+
+          if (channel < 0) continue;
+
+          // The first Part shares the Track with the meta messages
+          if (!first) track = sequence.createTrack();
+          first = false;
+
+          // Select the instrument
+          instrument = findInstrument(soundbank,
+                                      score.getInstrumentName(part));
+          if (instrument == null)
+          {
+             add(track, ShortMessage.PROGRAM_CHANGE, channel, 0, 0, 0);
+          }
+          else
+          {
+             add(track, ShortMessage.CONTROL_CHANGE, channel, 0,
+                 (instrument.getPatch().getBank() >> 7) & 0x7f, 0);
+             add(track, ShortMessage.CONTROL_CHANGE, channel, 32,
+                 instrument.getPatch().getBank() & 0x7f, 0);
+             add(track, ShortMessage.PROGRAM_CHANGE, channel,
+                 instrument.getPatch().getProgram(), 0, 0);
+          }
+
+          tick = 0;
+          for (int i=0; i<part.getNumberOfContents(); i++)
+          {
+             content  = part.getContent(i);
+             duration = ticksFor(content);
+
+             addNotes(track, content, channel, true,  tick);
+             tick    += duration;
+             addNotes(track, content, channel, false, tick);
+          }
+       }
+
+       return sequence;
+    }
+
+    /**
+     * Find the instrument with a particular name in a Soundbank
+     *
+     * @param soundbank   The Soundbank (or null)
+     * @param name        The name of the instrument (or null)
+     * @return            The Instrument (or null if there is none)
+     */
+    private static Instrument findInstrument(Soundbank soundbank,
+                                             String name)
+    {
+       Instrument[]      instruments;
+
+       if ((soundbank != null) && (name != null))
+       {
+          instruments = soundbank.getInstruments();
+          for (int i=0; i<instruments.length; i++)
+          {
+             if (name.equals(instruments[i].getName()))
+                return instruments[i];
+          }
+       }
+
+       return null;
+    }
+
+    /**
+     * Get the duration of a Content
+     *
+     * @param content   The Content
+     * @return          The duration (in ticks)
+     */
+    public static long ticksFor(Content content)
+    {
+       double    quarters;
+
+       quarters = 4.0 / content.getType();
+       if (content.isDotted()) quarters = quarters * 1.5;
+
+       return Math.round(quarters * RESOLUTION);
+    }
+
+    /**
+     * Write a Sequence to a standard MIDI (i.e., .mid) file
+     *
+     * @param sequence   The Sequence
+     * @param file       The file to write to
+     */
+    public static void write(Sequence sequence, File file)
+                       throws IOException
+    {
+       int       type;
+       int[]     types;
+
+       // Use a multi-track file if possible
+       types = MidiSystem.getMidiFileTypes(sequence);
+       type  = types[0];
+       for (int i=0; i<types.length; i++)
+       {
+          if (types[i] == 1) type = 1;
+       }
+
+       MidiSystem.write(sequence, type, file);
+    }
+}
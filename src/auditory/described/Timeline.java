@@ -0,0 +1,317 @@
+package auditory.described;
+
+import java.util.*;
+import javax.sound.midi.*;
+
+/**
+ * A Timeline is a sorted sequence of the events (i.e., the times at
+ * which each Content starts and stops) in a collection of Part
+ * objects.
+ *
+ * The events are calculated once (when the Timeline is constructed)
+ * so that, during playback, nothing needs to be calculated until
+ * the time of the next event.  When a Content stops at the same time
+ * that another starts, the stop event comes first.  A Content that
+ * would stop at the same time that it starts (e.g., a very short note
+ * at a fast tempo) has no events at all.
+ *
+ * When the MidiChannel for a Part is an AllocatedChannel, the events
+ * for that Part can be dispatched as time stamped messages (so that
+ * the synthesizer, rather than the thread that dispatches them, is
+ * responsible for the exact time at which they start and stop).
+ *
+ * A Timeline can contain at most 4096 Part objects, each with at most
+ * 1048576 Content objects.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class Timeline
+{
+    private AllocatedChannel[]  receivers;
+    private boolean            timestamped;
+    private boolean[]          starts;
+    private Content[]          contents;
+    private int                duration;
+    private int[]              times, tracks;
+    private MidiChannel[]      channels;
+    private Part[]             parts;
+
+    private static final int  MAX_CONTENTS = 0x100000;
+    private static final int  MAX_PARTS    = 0x1000;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param parts      The Part objects (with their tempo and time signature)
+     * @param channels   The MidiChannel to use for each Part
+     * @throws IllegalArgumentException if there are too many events
+     */
+    public Timeline(Part[] parts, MidiChannel[] channels)
+                    throws IllegalArgumentException
+    {
+       boolean       mixed;
+       int           event, index, n, start, stop, time;
+       long[]        keys;
+
+       this.channels = channels;
+       this.parts    = parts;
+
+       // The Receiver (if any) for each Part
+       receivers   = new AllocatedChannel[channels.length];
+       mixed       = false;
+       timestamped = false;
+       for (int p=0; p<channels.length; p++)
+       {
+          if (channels[p] instanceof AllocatedChannel)
+          {
+             receivers[p] = (AllocatedChannel)channels[p];
+             timestamped  = true;
+          }
+          else if (channels[p] != null)
+          {
+             mixed        = true;
+          }
+       }
+       if (mixed) timestamped = false;
+
+       if (parts.length > MAX_PARTS)
+          throw(new IllegalArgumentException("Too many parts"));
+
+       n = 0;
+       for (int p=0; p<parts.length; p++)
+       {
+          if (parts[p].getNumberOfContents() > MAX_CONTENTS)
+             throw(new IllegalArgumentException("Too many contents"));
+
+          n += 2 * parts[p].getNumberOfContents();
+       }
+
+       // Each key contains the time, whether the event is a start
+       // (so that stops sort first), the Part, and the position
+       // in the Part, so sorting the keys sorts the events
+       keys     = new long[n];
+       event    = 0;
+       duration = 0;
+       for (int p=0; p<parts.length; p++)
+       {
+          for (int i=0; i<parts[p].getNumberOfContents(); i++)
+          {
+             // Its stop would sort before its start (and the
+             // Content would never be stopped)
+             start = parts[p].getStartTime(i);
+             stop  = parts[p].getStartTime(i+1);
+             if (stop > start)
+             {
+                keys[event++] = key(start, true,  p, i);
+                keys[event++] = key(stop,  false, p, i);
+             }
+          }
+          time     = parts[p].getStartTime(parts[p].getNumberOfContents());
+          duration = Math.max(duration, time);
+       }
+       n    = event;
+       keys = Arrays.copyOf(keys, n);
+       Arrays.sort(keys);
+
+       times    = new int[n];
+       tracks   = new int[n];
+       starts   = new boolean[n];
+       contents = new Content[n];
+       for (int e=0; e<n; e++)
+       {
+          times[e]    = (int)(keys[e] >>> 33);
+          starts[e]   = ((keys[e] >>> 32) & 1) == 1;
+          tracks[e]   = (int)((keys[e] >>> 20) & 0xfff);
+          index       = (int)(keys[e] & 0xfffff);
+          contents[e] = parts[tracks[e]].getContent(index);
+       }
+    }
+
+    /**
+     * Dispatch an event (i.e., start or stop the Content on the
+     * MidiChannel of its Part)
+     *
+     * @param event   The index of the event
+     */
+    public void dispatch(int event)
+    {
+       MidiChannel     channel;
+
+       channel = channels[tracks[event]];
+       if (channel != null)
+       {
+          if (starts[event]) contents[event].startPlaying(channel);
+          else               contents[event].stopPlaying(channel);
+       }
+    }
+
+    /**
+     * Dispatch an event as a time stamped message (if the Part has
+     * a Receiver)
+     *
+     * @param event       The index of the event
+     * @param timeStamp   The time stamp (in microseconds, relative to
+     *                    getMicrosecondPosition())
+     */
+    public void dispatch(int event, long timeStamp)
+    {
+       AllocatedChannel    receiver;
+
+       receiver = receivers[tracks[event]];
+       if (receiver == null)
+       {
+          dispatch(event);
+       }
+       else if (starts[event]) 
+       {
+          contents[event].startPlaying(receiver, 
+                                       receiver.getChannelNumber(), 
+                                       timeStamp);
+       }
+       else
+       {
+          contents[event].stopPlaying(receiver, 
+                                      receiver.getChannelNumber(),
+                                      timeStamp);
+       }
+    }
+
+    /**
+     * Get the duration of this Timeline
+     *
+     * @return   The duration (in milliseconds)
+     */
+    public int getDuration()
+    {
+       return duration;
+    }
+
+    /**
+     * Get the current time of the clock that time stamps are
+     * relative to
+     *
+     * @return   The time (in microseconds) or -1 if this Timeline
+     *           isn't time stamped
+     */
+    public long getMicrosecondPosition()
+    {
+       for (int p=0; p<receivers.length; p++)
+       {
+          if (receivers[p] != null) 
+             return receivers[p].getMicrosecondPosition();
+       }
+
+       return -1;
+    }
+
+    /**
+     * Get the number of events in this Timeline
+     *
+     * @return   The number of events
+     */
+    public int getNumberOfEvents()
+    {
+       return times.length;
+    }
+
+    /**
+     * Get the time of an event
+     *
+     * @param event   The index of the event
+     * @return        The time (in milliseconds from the start)
+     */
+    public int getTime(int event)
+    {
+       return times[event];
+    }
+
+    /**
+     * Can all of the events in this Timeline be dispatched as time
+     * stamped messages?
+     *
+     * @return   true if they can; false otherwise
+     */
+    public boolean isTimestamped()
+    {
+       return timestamped;
+    }
+
+    /**
+     * Create the sort key for an event
+     *
+     * @param time    The time of the event
+     * @param start   true for a start event; false for a stop event
+     * @param part    The index of the Part
+     * @param index   The position of the Content in the Part
+     * @return        The key
+     */
+    private static long key(int time, boolean start, int part, int index)
+    {
+       long     key;
+
+       key = ((long)time << 33) | ((long)part << 20) | (long)index;
+       if (start) key = key | (1L << 32);
+
+       return key;
+    }
+
+    /**
+     * Prepare to continue from a particular time.  All of the notes
+     * that are playing are stopped and the Content that should be
+     * sounding at that time (having started earlier) is started.
+     *
+     * @param millis   The time (in milliseconds from the start)
+     * @return         The index of the first event at or after that time
+     */
+    public int seek(int millis)
+    {
+       Content         content;
+       int             high, index, low, middle;
+
+       release();
+
+       for (int p=0; p<parts.length; p++)
+       {
+          index = parts[p].getContentIndex(millis);
+          if ((channels[p] != null) && (index >= 0) &&
+              (parts[p].getStartTime(index) < millis))
+          {
+             content = parts[p].getContent(index);
+
+             // Start after any queued messages (that release() 
+             // turned off)
+             if (receivers[p] == null) 
+                content.startPlaying(channels[p]);
+             else
+                content.startPlaying(receivers[p], 
+                                     receivers[p].getChannelNumber(),
+                                     receivers[p].getNextTimeStamp());
+          }
+       }
+
+       // Find the first event at or after the time
+       low  = 0;
+       high = times.length;
+       while (low < high)
+       {
+          middle = (low + high) >>> 1;
+          if (times[middle] < millis) low  = middle + 1;
+          else                        high = middle;
+       }
+
+       return low;
+    }
+
+    /**
+     * Stop all of the notes that are playing on the
+     * MidiChannel objects used by this Timeline
+     */
+    public void release()
+    {
+       for (int c=0; c<channels.length; c++)
+       {
+          if (channels[c] != null) channels[c].allNotesOff();
+       }
+    }
+}
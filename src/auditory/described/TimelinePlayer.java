@@ -0,0 +1,239 @@
+package auditory.described;
+
+/**
+ * A TimelinePlayer presents the events in a Timeline at the
+ * appropriate times.
+ *
+ * Unlike a Metronome (which wakes up at regular intervals whether or
+ * not there is anything to do), a TimelinePlayer only wakes up when
+ * the next event is due.  The events are dispatched in a dedicated
+ * (high priority) thread rather than in the GUI/event-dispatch thread,
+ * so they aren't delayed when that thread is busy.
+ *
+ * When the Timeline is time stamped, each event is dispatched a little
+ * early (see setLookahead()) as a message that is time stamped with
+ * the exact time it is due (using the synthesizer's clock).  Hence,
+ * the synthesizer can start and stop notes at exactly the right
+ * sample, even if this thread wakes up late.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class TimelinePlayer implements Runnable
+{
+    private volatile int        lookahead, seekTime;
+    private volatile long       startTime;
+    private volatile Thread     playerThread;
+    private int                 next;
+    private Timeline            timeline;
+
+    /**
+     * The default lookahead (in milliseconds)
+     */
+    public static final int     DEFAULT_LOOKAHEAD = 20;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param timeline   The Timeline to present
+     */
+    public TimelinePlayer(Timeline timeline)
+    {
+       this.timeline = timeline;
+       next          = 0;
+       seekTime      = -1;
+       lookahead     = DEFAULT_LOOKAHEAD;
+    }
+
+    /**
+     * Get the current position of this TimelinePlayer
+     *
+     * @return   The position (in milliseconds from the start of
+     *           the Timeline) or -1 if it isn't playing
+     */
+    public int getPosition()
+    {
+       if (playerThread == null) return -1;
+
+       return (int)((System.nanoTime() - startTime) / 1000000L);
+    }
+
+    /**
+     * Is this TimelinePlayer playing?
+     *
+     * @return   true if it is playing; false otherwise
+     */
+    public boolean isPlaying()
+    {
+       return playerThread != null;
+    }
+
+    /**
+     * The code that is executed in the player thread
+     * (required by Runnable)
+     *
+     * Note: Each run continues only while its own thread is the
+     * player thread (which stop() clears)
+     */
+    public void run()
+    {
+       boolean   timestamped;
+       int       ahead, millis, n;
+       long      base, now, wait;
+       Thread    current;
+
+       current     = Thread.currentThread();
+       n           = timeline.getNumberOfEvents();
+       timestamped = timeline.isTimestamped();
+       base        = 0;
+
+       while ((playerThread == current) && ((next < n) || (seekTime >= 0)))
+       {
+          // Move to a new position (at the start and after a seek)
+          millis = seekTime;
+          if (millis >= 0)
+          {
+             seekTime  = -1;
+             next      = timeline.seek(millis);
+             startTime = System.nanoTime() - millis * 1000000L;
+
+             // The time of the start on the synthesizer's clock
+             // (if it has one)
+             if (timestamped)
+             {
+                base        = timeline.getMicrosecondPosition();
+                timestamped = (base >= 0);
+                base        = base - millis * 1000L;
+             }
+          }
+
+          // The time (in milliseconds) since the start
+          now = (System.nanoTime() - startTime) / 1000000L;
+          if (timestamped) ahead = lookahead;
+          else             ahead = 0;
+
+          // Dispatch all of the events that are due (or, if they
+          // are time stamped, will be due soon)
+          while ((next < n) && (timeline.getTime(next) <= now + ahead))
+          {
+             if (timestamped)
+                timeline.dispatch(next, base + timeline.getTime(next) * 1000L);
+             else
+                timeline.dispatch(next);
+             next++;
+          }
+
+          // Wait until the next event is (nearly) due
+          if (next < n)
+          {
+             wait = timeline.getTime(next) - ahead - now;
+             if (wait > 0)
+             {
+                try
+                {
+                   Thread.sleep(wait);
+                }
+                catch (InterruptedException ie)
+                {
+                   // stop() or seek() was called
+                }
+             }
+          }
+       }
+
+       // Don't leave any notes hanging (if it was stopped); stop()
+       // waits for this, so it can't release a later run's notes
+       if (playerThread != current) timeline.release();
+       else                         playerThread = null;
+    }
+
+    /**
+     * Move this TimelinePlayer to a particular position (while it is
+     * playing).  The notes that are playing are stopped and the
+     * notes that should be sounding at that position are started.
+     *
+     * @param millis   The position (in milliseconds from the start)
+     */
+    public synchronized void seek(int millis)
+    {
+       Thread      thread;
+
+       thread = playerThread;
+       if (thread != null)
+       {
+          seekTime = Math.max(0, millis);
+          thread.interrupt();
+       }
+    }
+
+    /**
+     * Set how far ahead of time events in a time stamped Timeline
+     * are dispatched (i.e., the longest delay in this thread that
+     * can't be heard)
+     *
+     * @param millis   The lookahead (in milliseconds)
+     */
+    public void setLookahead(int millis)
+    {
+       lookahead = Math.max(0, millis);
+    }
+
+    /**
+     * Start this TimelinePlayer (from the beginning of the Timeline)
+     */
+    public void start()
+    {
+       start(0);
+    }
+
+    /**
+     * Start this TimelinePlayer from a particular position
+     *
+     * @param millis   The position (in milliseconds from the start)
+     */
+    public synchronized void start(int millis)
+    {
+       if (playerThread == null)
+       {
+          next         = 0;
+          seekTime     = Math.max(0, millis);
+          startTime    = System.nanoTime() - seekTime * 1000000L;
+          playerThread = new Thread(this, "TimelinePlayer");
+          playerThread.setPriority(Thread.MAX_PRIORITY);
+          playerThread.setDaemon(true);
+          playerThread.start();
+       }
+    }
+
+    /**
+     * Stop this TimelinePlayer (and stop any notes that are playing).
+     * This method returns after the player thread has finished, so
+     * it can be followed immediately by start().
+     */
+    public synchronized void stop()
+    {
+       boolean     interrupted;
+       Thread      thread;
+
+       thread       = playerThread;
+       playerThread = null;
+       if ((thread != null) && (thread != Thread.currentThread())) 
+       {
+          thread.interrupt();
+
+          interrupted = false;
+          while (thread.isAlive())
+          {
+             try
+             {
+                thread.join();
+             }
+             catch (InterruptedException ie)
+             {
+                interrupted = true;
+             }
+          }
+          if (interrupted) Thread.currentThread().interrupt();
+       }
+    }
+}
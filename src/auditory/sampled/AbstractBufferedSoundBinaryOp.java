@@ -1,6 +1,7 @@
 package auditory.sampled;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * An abstract class that implements the BufferedSoundBinaryOp
@@ -27,9 +28,33 @@ public abstract class      AbstractBufferedSoundBinaryOp
                                      double[] source2, 
                                      double[] destination);
 
+    /**
+     * Apply the filter to a range of samples.  Children whose
+     * StateContract is STATELESS must override this method.
+     * This implementation can only process complete signals.
+     *
+     * @param source1     The signal from source1
+     * @param source2     The signal from source2
+     * @param destination The destination signals
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     * @throws UnsupportedOperationException if the range is partial
+     */
+    public void applyFilter(double[] source1, double[] source2,
+                            double[] destination, int from, int to)
+    {
+       if ((from == 0) && (to == source1.length))
+          applyFilter(source1, source2, destination);
+       else
+          throw(new UnsupportedOperationException("Ranges not supported"));
+    }
+
     /**
      * Apply the filter to all of the channels
      *
+     * If this operation has a ForkJoinPool, the channels
+     * are processed in parallel (in accordance with the StateContract)
+     *
      * @param source1     The signals from source1
      * @param source2     The signals from source2
      * @param destination The destination signals
@@ -38,12 +63,60 @@ public abstract class      AbstractBufferedSoundBinaryOp
                             Iterator<double[]> source2, 
                             Iterator<double[]> destination)
     {
-       while (source1.hasNext())
+       boolean                          splittable;
+       double[]                         s;
+       ForkJoinPool                     pool;
+       final ArrayList<RangeTask>       tasks;
+       StateContract                    contract;
+
+       pool     = getPool();
+       contract = getStateContract();
+
+       if ((pool == null) || (contract == StateContract.SHARED_STATE))
+       {
+          while (source1.hasNext())
+          {
+             applyFilter(source1.next(), source2.next(), destination.next());
+          }
+       }
+       else
        {
-          applyFilter(source1.next(), source2.next(), destination.next());
+          splittable = (contract == StateContract.STATELESS);
+          tasks      = new ArrayList<RangeTask>();
+          while (source1.hasNext())
+          {
+             s = source1.next();
+             tasks.add(new RangeTask(s, source2.next(), destination.next(),
+                                     0, s.length, splittable));
+          }
+
+          pool.invoke(new RecursiveAction()
+             {
+                protected void compute()
+                {
+                   invokeAll(tasks);
+                }
+             });
        }
     }
 
+    /**
+     * Create a BlockFilter that applies this operation (with the
+     * given signal as the second operand) to one signal a block at
+     * a time (e.g., so that it can be fused with other operations
+     * in a BufferedSoundPipeline).
+     *
+     * Children should override this method if they can be applied
+     * block-by-block.  This implementation returns null.
+     *
+     * @param source2   The signal from source2
+     * @return          The BlockFilter (or null if it is not possible)
+     */
+    public BlockFilter createBlockFilter(double[] source2)
+    {
+       return null;
+    }
+
     /**
      * Check to see if two BufferedSound objects are compatible.
      * 
@@ -60,7 +133,9 @@ public abstract class      AbstractBufferedSoundBinaryOp
     /**
      * A two-source/one-destination filter.  If the
      * destination is null, a BufferedSound with an appropriate
-     * AudioFormat and length is created and returned.
+     * AudioFormat and length is created and returned.  The
+     * destination may be one of the sources (i.e., the operation
+     * may be executed in place).
      *
      * @param src1  One operand (i.e., one sound to operate on)
      * @param src2  The other operand (i.e., other sound to operate on)
@@ -72,6 +147,7 @@ public abstract class      AbstractBufferedSoundBinaryOp
                                 BufferedSound dest)
                          throws IllegalArgumentException
     {
+       BufferedSound        temp;
        Iterator<double[]>   source1, source2, destination;
 
 
@@ -79,11 +155,25 @@ public abstract class      AbstractBufferedSoundBinaryOp
        checkArguments(src1, src2);
 
        // Construct the destination if necessary; otherwise check it
+       // (and make sure the sources aren't overwritten while they
+       // are being used)
+       temp = null;
        if (dest == null) 
+       {
           dest = createCompatibleDestinationSound(src1);
+       }
        else
+       {
           checkArguments(src1, dest);
 
+          if (((dest == src1) || (dest == src2)) && !supportsInPlace())
+          {
+             temp = createTemporaryCopy(dest);
+             if (src1 == dest) src1 = temp;
+             if (src2 == dest) src2 = temp;
+          }
+       }
+
        
        // Get the source channels
        source1     = src1.getSignals();
@@ -96,7 +186,69 @@ public abstract class      AbstractBufferedSoundBinaryOp
        // Apply the filter
        applyFilter(source1, source2, destination);       
 
+       if (temp != null) releaseTemporary(temp);
+
        return dest;
     }
-}
 
+    /**
+     * A RangeTask applies the filter to a range of one channel,
+     * splitting the range in half (recursively) if it is allowed to
+     */
+    private class RangeTask extends RecursiveAction
+    {
+        private boolean        splittable;
+        private double[]       destination, source1, source2;
+        private int            from, to;
+
+        private static final long   serialVersionUID = 1L;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param source1     The signal from source1
+         * @param source2     The signal from source2
+         * @param destination The destination signal
+         * @param from        The index of the first sample (inclusive)
+         * @param to          The index of the last sample (exclusive)
+         * @param splittable  true if the range can be split
+         */
+        public RangeTask(double[] source1, double[] source2,
+                         double[] destination,
+                         int from, int to, boolean splittable)
+        {
+           this.source1     = source1;
+           this.source2     = source2;
+           this.destination = destination;
+           this.from        = from;
+           this.to          = to;
+           this.splittable  = splittable;
+        }
+
+        /**
+         * The code that is executed in the pool
+         * (required by RecursiveAction)
+         */
+        protected void compute()
+        {
+           int     middle;
+
+           if (splittable && (to-from > 2*CHUNK_SIZE))
+           {
+              middle = (from+to) >>> 1;
+              invokeAll(new RangeTask(source1, source2, destination,
+                                      from, middle, true),
+                        new RangeTask(source1, source2, destination,
+                                      middle, to, true));
+           }
+           else if (splittable)
+           {
+              applyFilter(source1, source2, destination, from, to);
+           }
+           else
+           {
+              applyFilter(source1, source2, destination);
+           }
+        }
+    }
+}
@@ -1,17 +1,37 @@
 package auditory.sampled;
 
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * An abstract class that implements the BufferedSoundOp
  * interface.  This method can be extended by classes that
  * want to implement, for example, the BufferedSoundUnaryOp and
  * BufferedSoundUnaryOp interfaces.
  *
+ * By default, operations are executed sequentially in the calling
+ * thread.  If a ForkJoinPool is provided, the channels (and, for
+ * STATELESS operations, ranges of each channel) are processed
+ * in parallel, in accordance with the StateContract of the operation.
+ *
+ * If a BufferedSoundArena is provided, destinations (and temporary
+ * copies) are acquired from it rather than allocated.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public abstract class AbstractBufferedSoundOp
 {
+    private volatile BufferedSoundArena  arena;
+    private volatile ForkJoinPool        pool;
+
+    /**
+     * The smallest number of samples in a range that is
+     * processed as a separate (parallel) task
+     */
+    public static final int           CHUNK_SIZE = 65536;
+
     /**
      * Creates a BufferedSound with the same sampling rate and length
      * as the source.  All of the samples in the new BufferedSound will
@@ -21,14 +41,34 @@ public abstract class AbstractBufferedSoundOp
      */
     public BufferedSound createCompatibleDestinationSound(
                                          BufferedSound src)
+    {
+       return createCompatibleDestinationSound(src, src.getSampleRate(),
+                                               src.getNumberOfSamples());
+    }
+
+    /**
+     * Creates a BufferedSound with the given sampling rate and length
+     * and the same number of channels as the source.  All of the samples
+     * in the new BufferedSound will be 0.  If this operation has a
+     * BufferedSoundArena, the BufferedSound is acquired from it.
+     *
+     * @param src         The BufferedSound to mimic
+     * @param sampleRate  The sampling rate (in Hz)
+     * @param length      The number of samples (per channel)
+     */
+    protected BufferedSound createCompatibleDestinationSound(
+                                         BufferedSound src, 
+                                         float sampleRate,
+                                         int length)
     {
        BufferedSound        temp;
-       float                sampleRate;
-       int                  channels, length;
+       BufferedSoundArena   a;
+       int                  channels;
        
        channels   = src.getNumberOfChannels();       
-       length     = src.getNumberOfSamples();       
-       sampleRate = src.getSampleRate();
+
+       a = arena;
+       if (a != null) return a.acquire(sampleRate, channels, length);
 
        temp = new BufferedSound(sampleRate);
 
@@ -40,6 +80,36 @@ public abstract class AbstractBufferedSoundOp
        return temp;       
     }
 
+    /**
+     * Creates a (temporary) copy of a BufferedSound and sets all of
+     * the samples in the original to 0.  This is used when an
+     * operation that does not support in-place execution is asked
+     * to use the source as the destination.
+     *
+     * @param src    The BufferedSound to copy and clear
+     * @return       The copy (which should be passed to releaseTemporary)
+     */
+    protected BufferedSound createTemporaryCopy(BufferedSound src)
+    {
+       BufferedSound        temp;
+       double[]             from;
+       Iterator<double[]>   i, j;
+
+       temp = createCompatibleDestinationSound(src, src.getSampleRate(),
+                                               src.getNumberOfSamples());
+
+       i = src.getSignals();
+       j = temp.getSignals();
+       while (i.hasNext())
+       {
+          from = i.next();
+          System.arraycopy(from, 0, j.next(), 0, from.length);
+          Arrays.fill(from, 0.0);
+       }
+
+       return temp;
+    }
+
     /**
      * Check to see if two BufferedSound objects are compatible.
      * 
@@ -51,4 +121,109 @@ public abstract class AbstractBufferedSoundOp
        if (!a.matches(b))
            throw(new IllegalArgumentException("Argument Mismatch"));
     }
+
+    /**
+     * Check to see if a destination has the given sampling rate and
+     * length and the same number of channels as the source (for
+     * operations whose result doesn't have the shape of the source).
+     *
+     * @param src         The source BufferedSound
+     * @param dest        The destination BufferedSound
+     * @param sampleRate  The sampling rate of the result (in Hz)
+     * @param length      The number of samples (per channel) in the result
+     * @throws IllegalArgumentException  If it doesn't
+     */
+    protected void checkDestination(BufferedSound src, BufferedSound dest,
+                                    float sampleRate, int length)
+                                    throws IllegalArgumentException
+    {
+       if ((dest.getSampleRate()       != sampleRate)              ||
+           (dest.getNumberOfSamples()  != length)                  ||
+           (dest.getNumberOfChannels() != src.getNumberOfChannels())  )
+           throw(new IllegalArgumentException("Destination Mismatch"));
+    }
+
+    /**
+     * Get the ForkJoinPool used to execute this operation
+     *
+     * @return   The ForkJoinPool (or null if it is executed sequentially)
+     */
+    public ForkJoinPool getPool()
+    {
+       return pool;
+    }
+
+    /**
+     * Get the StateContract for this operation (i.e., how the
+     * work can be divided when it is executed in parallel).
+     *
+     * Children should override this method if they can be
+     * executed in parallel.  This implementation returns
+     * SHARED_STATE (i.e., it is always safe).
+     *
+     * @return   The StateContract
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.SHARED_STATE;
+    }
+
+    /**
+     * Set the ForkJoinPool used to execute this operation
+     *
+     * @param pool   The ForkJoinPool (or null to execute sequentially)
+     */
+    public void setPool(ForkJoinPool pool)
+    {
+       this.pool = pool;
+    }
+
+    /**
+     * Get the BufferedSoundArena used by this operation
+     *
+     * @return   The BufferedSoundArena (or null if there is none)
+     */
+    public BufferedSoundArena getArena()
+    {
+       return arena;
+    }
+
+    /**
+     * Release a temporary copy (created by createTemporaryCopy())
+     *
+     * @param temp   The temporary copy
+     */
+    protected void releaseTemporary(BufferedSound temp)
+    {
+       BufferedSoundArena   a;
+
+       a = arena;
+       if (a != null) a.release(temp);
+    }
+
+    /**
+     * Set the BufferedSoundArena used by this operation
+     *
+     * @param arena   The BufferedSoundArena (or null to allocate)
+     */
+    public void setArena(BufferedSoundArena arena)
+    {
+       this.arena = arena;
+    }
+
+    /**
+     * Can this operation be executed in place (i.e., with the source
+     * as the destination), including when the channels are split
+     * into ranges that are processed in parallel?
+     *
+     * Children should override this method if they can be executed
+     * in place.  This implementation returns false, in which case
+     * the source is copied before it is used.
+     *
+     * @return   true if it can be executed in place; false otherwise
+     */
+    public boolean supportsInPlace()
+    {
+       return false;
+    }
 }
@@ -1,6 +1,7 @@
 package auditory.sampled;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * An abstract class that implements the BufferedSoundUnaryOp
@@ -25,9 +26,31 @@ public abstract class      AbstractBufferedSoundUnaryOp
     public abstract void applyFilter(double[] source, 
                                      double[] destination);
 
+    /**
+     * Apply the filter to a range of samples (in the destination).
+     * Children whose StateContract is STATELESS must override this
+     * method.  This implementation can only process a complete signal.
+     *
+     * @param source      The signal from source
+     * @param destination The destination signals
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     * @throws UnsupportedOperationException if the range is partial
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       if ((from == 0) && (to == destination.length))
+          applyFilter(source, destination);
+       else
+          throw(new UnsupportedOperationException("Ranges not supported"));
+    }
+
     /**
      * Apply the filter to all of the channels
      *
+     * If this operation has a ForkJoinPool, the channels
+     * are processed in parallel (in accordance with the StateContract)
      *
      * @param source      The source signals
      * @param destination The destination signals
@@ -35,16 +58,65 @@ public abstract class      AbstractBufferedSoundUnaryOp
     public void applyFilter(Iterator<double[]> source, 
                             Iterator<double[]> destination)
     {
-       while (source.hasNext())
+       boolean                          splittable;
+       double[]                         d;
+       ForkJoinPool                     pool;
+       final ArrayList<RangeTask>       tasks;
+       StateContract                    contract;
+
+       pool     = getPool();
+       contract = getStateContract();
+
+       if ((pool == null) || (contract == StateContract.SHARED_STATE))
        {
-          applyFilter(source.next(), destination.next());
+          while (source.hasNext())
+          {
+             applyFilter(source.next(), destination.next());
+          }
+       }
+       else
+       {
+          splittable = (contract == StateContract.STATELESS);
+          tasks      = new ArrayList<RangeTask>();
+          while (source.hasNext())
+          {
+             // The ranges are ranges of the destination
+             d = destination.next();
+             tasks.add(new RangeTask(source.next(), d, 
+                                     0, d.length, splittable));
+          }
+
+          pool.invoke(new RecursiveAction()
+             {
+                protected void compute()
+                {
+                   invokeAll(tasks);
+                }
+             });
        }
     }
 
+    /**
+     * Create a BlockFilter that applies this operation to one
+     * signal a block at a time (e.g., so that it can be fused with
+     * other operations in a BufferedSoundPipeline).
+     *
+     * Children should override this method if they can be applied
+     * block-by-block.  This implementation returns null.
+     *
+     * @return   The BlockFilter (or null if it is not possible)
+     */
+    public BlockFilter createBlockFilter()
+    {
+       return null;
+    }
+
     /**
      * A two-source/one-destination filter.  If the
      * destination is null, a BufferedSound with an appropriate
-     * AudioFormat and length is created and returned.
+     * AudioFormat and length is created and returned.  The
+     * destination may be the source (i.e., the operation may
+     * be executed in place).
      *
      * @param src  The operand (i.e., the sound to operate on)
      * @param dest An empty sound to hold the result (or null)
@@ -52,11 +124,21 @@ public abstract class      AbstractBufferedSoundUnaryOp
     public BufferedSound filter(BufferedSound src, 
                                 BufferedSound dest)
     {
+       BufferedSound         temp;
        Iterator<double[]>    source, destination;
 
-       // Construct the destination if necessary; otherwise check it
+       // Construct the destination if necessary; otherwise make sure
+       // the source isn't overwritten while it is being used
+       temp = null;
        if (dest == null) 
+       {
           dest = createCompatibleDestinationSound(src);
+       }
+       else if ((dest == src) && !supportsInPlace())
+       {
+          temp = createTemporaryCopy(src);
+          src  = temp;
+       }
 
        // Get the source channels
        source      = src.getSignals();
@@ -67,7 +149,66 @@ public abstract class      AbstractBufferedSoundUnaryOp
        // Apply the filter
        applyFilter(source, destination);       
 
+       if (temp != null) releaseTemporary(temp);
+
        return dest;
     }
-}
 
+    /**
+     * A RangeTask applies the filter to a range of one channel,
+     * splitting the range in half (recursively) if it is allowed to
+     */
+    private class RangeTask extends RecursiveAction
+    {
+        private boolean        splittable;
+        private double[]       destination, source;
+        private int            from, to;
+
+        private static final long   serialVersionUID = 1L;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param source      The source signal
+         * @param destination The destination signal
+         * @param from        The index of the first sample (inclusive)
+         * @param to          The index of the last sample (exclusive)
+         * @param splittable  true if the range can be split
+         */
+        public RangeTask(double[] source, double[] destination,
+                         int from, int to, boolean splittable)
+        {
+           this.source      = source;
+           this.destination = destination;
+           this.from        = from;
+           this.to          = to;
+           this.splittable  = splittable;
+        }
+
+        /**
+         * The code that is executed in the pool
+         * (required by RecursiveAction)
+         */
+        protected void compute()
+        {
+           int     middle;
+
+           if (splittable && (to-from > 2*CHUNK_SIZE))
+           {
+              middle = (from+to) >>> 1;
+              invokeAll(new RangeTask(source, destination, 
+                                      from, middle, true),
+                        new RangeTask(source, destination, 
+                                      middle, to, true));
+           }
+           else if (splittable)
+           {
+              applyFilter(source, destination, from, to);
+           }
+           else
+           {
+              applyFilter(source, destination);
+           }
+        }
+    }
+}
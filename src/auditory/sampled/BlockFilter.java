@@ -0,0 +1,25 @@
+package auditory.sampled;
+
+/**
+ * The requirements of an object that applies an operation to one
+ * signal (i.e., one channel) a block at a time.
+ *
+ * The blocks of a signal must be passed to a BlockFilter in order,
+ * since a BlockFilter may keep state (e.g., a history of samples)
+ * from one block to the next.  Hence, a BlockFilter can only be used
+ * for a single signal.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public interface BlockFilter
+{
+    /**
+     * Filter the next block of the signal (in place)
+     *
+     * @param block    The signal containing the block
+     * @param offset   The index of the first sample in the block
+     * @param length   The number of samples in the block
+     */
+    public abstract void filter(double[] block, int offset, int length);
+}
@@ -1,21 +1,33 @@
 package auditory.sampled;
 
 import java.util.*;
+import java.util.concurrent.*;
 import javax.sound.sampled.*;
 
 /**
  * A Boombox renders/presents sampled auditory content
  *
+ * Each call to play() presents the Content on its own Clip and
+ * returns a CompletableFuture that is completed when that Clip
+ * stops.  The futures are completed on a small executor that is
+ * shared by all BoomBox objects, so sounds can be sequenced (e.g.,
+ * using thenRun()) without dedicating a thread to each sound.
+ *
  * @author  Prof. David Bernstein, James Madison Univeristy
  * @version 1.0
  */
 public class BoomBox implements LineListener
 {
-    private Content         content;
-    private Clip            clip;    
-    private final Object    sync = new Object();
+    private Content                                     content;
+    private ConcurrentHashMap<Line, CompletableFuture<Void>> playing;
+    private CopyOnWriteArrayList<LineListener>          listeners;
 
-    private Vector<LineListener> listeners = new Vector<LineListener>();    
+    private static final Executor     EXECUTOR = createExecutor();
+
+    /**
+     * The number of threads in the shared executor
+     */
+    public static final int           EXECUTOR_THREADS = 2;
 
     /**
      * Explicit Value Constructor
@@ -25,6 +37,8 @@ public class BoomBox implements LineListener
     public BoomBox(Content content)
     {
        this.content = content;       
+       playing      = new ConcurrentHashMap<Line, CompletableFuture<Void>>();
+       listeners    = new CopyOnWriteArrayList<LineListener>();
     }
 
     /**
@@ -37,6 +51,117 @@ public class BoomBox implements LineListener
        listeners.add(listener);       
     }
 
+    /**
+     * Create the shared executor (which uses daemon threads so
+     * that it never keeps the application running)
+     *
+     * @return  The executor
+     */
+    private static Executor createExecutor()
+    {
+       return Executors.newFixedThreadPool(EXECUTOR_THREADS,
+          new ThreadFactory()
+          {
+             private int    count = 0;
+
+             public synchronized Thread newThread(Runnable r)
+             {
+                Thread     thread;
+
+                count++;
+                thread = new Thread(r, "BoomBox-" + count);
+                thread.setDaemon(true);
+
+                return thread;
+             }
+          });
+    }
+
+    /**
+     * Get the (shared) executor that completes the futures returned
+     * by play().  It can also be used for follow-up work
+     * (e.g., with thenRunAsync()).
+     *
+     * @return  The executor
+     */
+    public static Executor getExecutor()
+    {
+       return EXECUTOR;
+    }
+
+    /**
+     * Render the Content without blocking
+     *
+     * @return  A CompletableFuture that is completed when the Clip stops
+     */
+    public CompletableFuture<Void> play() 
+                throws LineUnavailableException
+    {
+       return play(1.0f);
+    }
+
+    /**
+     * Render the Content (at a particular gain) without blocking.  The
+     * gain is applied using the Clip's MASTER_GAIN control (if it has
+     * one) and is limited to the range that the control supports.
+     *
+     * @param gain  The (linear) gain (e.g., 0.5 for half the amplitude)
+     * @return      A CompletableFuture that is completed when the Clip stops
+     */
+    public CompletableFuture<Void> play(float gain) 
+                throws LineUnavailableException
+    {
+       Clip                       clip;       
+       CompletableFuture<Void>    future;
+
+       future = new CompletableFuture<Void>();
+
+       clip = AudioSystem.getClip();
+       playing.put(clip, future);
+       clip.addLineListener(this); // So that the future can be completed
+
+       try
+       {
+          // Apply the gain before the Clip starts (so that
+          // none of it is played at the wrong gain)
+          content.open(clip);
+          if (gain != 1.0f) setGain(clip, gain);
+          clip.start();
+       }
+       catch (LineUnavailableException | RuntimeException e)
+       {
+          playing.remove(clip);
+          clip.removeLineListener(this);
+          clip.close();
+          throw e;
+       }
+
+       return future;
+    }
+
+    /**
+     * Set the gain of a (open) Clip
+     *
+     * @param clip  The Clip
+     * @param gain  The (linear) gain
+     */
+    private void setGain(Clip clip, float gain)
+    {
+       float          dB;
+       FloatControl   control;
+
+       if (clip.isControlSupported(FloatControl.Type.MASTER_GAIN))
+       {
+          control = (FloatControl)clip.getControl(FloatControl.Type.MASTER_GAIN);
+
+          if (gain > 0.0f) dB = (float)(20.0 * Math.log10(gain));
+          else             dB = control.getMinimum();
+
+          control.setValue(Math.max(control.getMinimum(),
+                                    Math.min(control.getMaximum(), dB)));
+       }
+    }
+
     /**
      * Render the Content without blocking
      */
@@ -54,26 +179,26 @@ public class BoomBox implements LineListener
     public void start(boolean block) 
                 throws LineUnavailableException
     {
-       Clip                clip;       
+       CompletableFuture<Void>    future;
 
-       clip = AudioSystem.getClip();
-       clip.addLineListener(this); // So the calling thread can be informed
-       content.render(clip);
+       future = play();
 
-       synchronized(sync)
+       // Wait until the Clip stops [and the future is completed
+       // by the update() method]
+       if (block)
        {
-          // Wait until the Clip stops [and notifies us by
-          // calling the update() method]
-          if (block)
+          try
           {
-             try
-             {
-                sync.wait();
-             }
-             catch (InterruptedException ie)
-             {
-                // Ignore
-             }
+             future.get();
+          }
+          catch (InterruptedException ie)
+          {
+             // Let the caller see that it was interrupted
+             Thread.currentThread().interrupt();
+          }
+          catch (ExecutionException ee)
+          {
+             // Ignore
           }
        }
     }
@@ -95,30 +220,39 @@ public class BoomBox implements LineListener
      */
     public void update(LineEvent evt)
     {
-       Enumeration      e;
-       LineEvent.Type   type;
-       LineListener     listener;
+       final CompletableFuture<Void>   future;
+       Line                            line;
+       LineEvent.Type                  type;
 
-       synchronized(sync)
+       // Forward the LineEvent to all LineListener objects
+       for (LineListener listener : listeners)
        {
-          // Forward the LineEvent to all LineListener objects
-          e = listeners.elements();
-          while (e.hasMoreElements())
-          {
-             listener = (LineListener)e.nextElement();
-             listener.update(evt);          
-          }
+          listener.update(evt);          
+       }
 
-          // Get the type of the event
-          type = evt.getType();
+       // Get the type of the event
+       type = evt.getType();
 
-          // Process STOP events
-          if (type.equals(LineEvent.Type.STOP))
+       // Process STOP events
+       if (type.equals(LineEvent.Type.STOP))
+       {
+          line   = evt.getLine();
+          future = playing.remove(line);
+
+          line.removeLineListener(this);
+          line.close();
+
+          // Complete the future on the shared executor (so that
+          // dependent actions don't run on the audio event thread)
+          if (future != null)
           {
-             sync.notifyAll();
-             clip.close();
-             clip.removeLineListener(this);
-             clip = null;             
+             EXECUTOR.execute(new Runnable()
+             {
+                public void run()
+                {
+                   future.complete(null);
+                }
+             });
           }
        }
     }
@@ -1,5 +1,6 @@
 package auditory.sampled;
 
+import java.nio.*;
 import java.util.*;
 import javax.sound.sampled.*;
 
@@ -10,6 +11,18 @@ import javax.sound.sampled.*;
  * content in-memory and store the remainder in a file (e.g., using
  * a ring buffer).
  *
+ * The content of each channel is stored as a contiguous signal followed
+ * by a list of (appended) chunks.  Appending a BufferedSound only adds
+ * chunks; the chunks are copied into a single contiguous signal (which
+ * is then kept) when the signals are needed (e.g., by an operation or
+ * when rendering).  Hence, building a long BufferedSound from many
+ * fragments takes time that is linear in its length.
+ *
+ * A BufferedSound can also be backed by (e.g., memory-mapped) 16-bit
+ * frames in the format it renders (see PCMCache).  In that case, it is
+ * rendered straight from the frames, and the signals are only decoded
+ * from them when they are needed (e.g., by an operation).
+ *
  * An individual BufferedSound can only be manipulated by one thread
  * at a time.  This should not be a problem in practice since, most
  * often, a BufferedSound will be manipulated first and then rendered.
@@ -24,9 +37,11 @@ import javax.sound.sampled.*;
  */
 public class BufferedSound implements Content
 {
-    private ArrayList<double[]>  channels;    
-    private AudioFormat          format;    
-    private int                  numberOfSamples;    
+    private ArrayList<double[]>             channels;    
+    private ArrayList<ArrayList<double[]>>  chunks;
+    private AudioFormat                     format;    
+    private ByteBuffer                      frames;
+    private int                             numberOfSamples;    
 
     private static final double MAX_AMPLITUDE       =  32767.0;
     private static final double MIN_AMPLITUDE       = -32767.0;
@@ -50,9 +65,34 @@ public class BufferedSound implements Content
           true);               // Big-endian or not
 
        channels = new ArrayList<double[]>();       
+       chunks   = new ArrayList<ArrayList<double[]>>();
        numberOfSamples = 0;       
     }
 
+    /**
+     * Explicit Value Constructor (for a BufferedSound that is backed
+     * by 16-bit, big-endian, interleaved frames)
+     *
+     * @param sampleRate         The sampling rate (in Hz)
+     * @param numberOfChannels   The number of channels
+     * @param frames             The frames (which must not change)
+     */
+    BufferedSound(float sampleRate, int numberOfChannels, ByteBuffer frames)
+    {
+       this(sampleRate);
+
+       // The signals are decoded when they are needed
+       for (int c=0; c<numberOfChannels; c++)
+       {
+          channels.add(null);
+          chunks.add(new ArrayList<double[]>());
+       }
+       updateAudioFormat();
+
+       this.frames     = frames.slice().order(ByteOrder.BIG_ENDIAN);
+       numberOfSamples = this.frames.remaining() / format.getFrameSize();
+    }
+
     /**
      * Add a channel to this BufferedSound
      *
@@ -61,11 +101,14 @@ public class BufferedSound implements Content
      */
     public synchronized void addChannel(double[] signal)
     {
+       flatten();
+
        if (numberOfSamples == 0) numberOfSamples = signal.length;       
 
        if (numberOfSamples == signal.length)
        {
           channels.add(signal);
+          chunks.add(new ArrayList<double[]>());
           updateAudioFormat();       
        }
     }
@@ -73,45 +116,137 @@ public class BufferedSound implements Content
     /**
      * Append a BufferedSound to this BufferedSound
      * 
-     * Note: If the BufferedSound to append does not match
-     * this BufferedSound then nothing is done
+     * Note: If the AudioFormat of the BufferedSound to append does
+     * not match the AudioFormat of this BufferedSound then nothing 
+     * is done
+     *
+     * Note: The content of the other BufferedSound is copied (once)
+     * into new chunks.  The content of this BufferedSound is not
+     * copied until its signals are needed.
      *
      * @param other   The BufferedSound to append
      */
-    public synchronized void append(BufferedSound other)
+    public void append(BufferedSound other)
     {
-       ArrayList<double[]>  temp;       
-       double[]             otherSignal, tempSignal, thisSignal;
-       Iterator<double[]>   i, j;
+       ArrayList<double[]>  copies;
+       AudioFormat          thisFormat;
+       double[]             otherSignal;       
+       Iterator<double[]>   j;
+       int                  otherLength;
+
+       if (other == this) // Copy the content before it changes
+       {
+          other = copyOf(this);
+       }
+
+       // Never hold both locks (to avoid deadlock)
+       thisFormat = getAudioFormat();
+       synchronized(other)
+       {
+          otherLength = other.numberOfSamples;
+          copies      = new ArrayList<double[]>();
+          if (thisFormat.matches(other.format) && (otherLength > 0))
+          {
+             j = other.getSignals();
+             while (j.hasNext())
+             {
+                otherSignal = j.next();
+                copies.add(Arrays.copyOf(otherSignal, otherSignal.length));
+             }
+          }
+       }
 
-       if (matches(other))
+       synchronized(this)
        {
-          temp = new ArrayList<double[]>();          
+          decode();
+          if (copies.size() == channels.size())
+          {
+             for (int c=0; c<copies.size(); c++)
+             {
+                chunks.get(c).add(copies.get(c));
+             }
+             numberOfSamples += otherLength;
+          }
+       }
+    }
+
+    /**
+     * Create a (contiguous) copy of a BufferedSound
+     *
+     * @param sound   The BufferedSound to copy
+     * @return        The copy
+     */
+    private static BufferedSound copyOf(BufferedSound sound)
+    {
+       BufferedSound        copy;
+       double[]             signal;
+       Iterator<double[]>   i;
 
-          i = channels.iterator();
-          j = other.channels.iterator();
+       synchronized(sound)
+       {
+          copy = new BufferedSound(sound.getSampleRate());
+          i    = sound.getSignals();
           while (i.hasNext())
           {
-             thisSignal  = i.next();
-             otherSignal = j.next();
-             
-             // Allocate space for the new signal
-             tempSignal = new double[thisSignal.length + 
-                                     otherSignal.length];
-          
-             // Copy the current signal
-             System.arraycopy(thisSignal, 0, 
-                              tempSignal, 0, thisSignal.length);
-             
-             // Append the other left signal
-             System.arraycopy(otherSignal, 0, 
-                              tempSignal, thisSignal.length, 
-                              otherSignal.length);
-             
-             // Save the longer signal
-             temp.add(tempSignal);
+             signal = i.next();
+             copy.addChannel(Arrays.copyOf(signal, signal.length));
+          }
+       }
+
+       return copy;
+    }
+
+    /**
+     * Decode the signals from the frames that back this
+     * BufferedSound (if it is backed by frames)
+     */
+    private void decode()
+    {
+       double[]             signal;
+       int                  n;
+
+       if (frames == null) return;
+
+       n = channels.size();
+       for (int c=0; c<n; c++)
+       {
+          signal = new double[numberOfSamples];
+          for (int i=0; i<numberOfSamples; i++)
+          {
+             signal[i] = frames.getShort(BYTES_PER_CHANNEL * (i*n + c));
+          }
+          channels.set(c, signal);
+       }
+       frames = null;
+    }
+
+    /**
+     * Copy any appended chunks into the contiguous signals
+     */
+    private void flatten()
+    {
+       ArrayList<double[]>  pending;
+       double[]             chunk, signal;
+       int                  offset;
+
+       decode();
+
+       for (int c=0; c<channels.size(); c++)
+       {
+          pending = chunks.get(c);
+          if (!pending.isEmpty())
+          {
+             signal = Arrays.copyOf(channels.get(c), numberOfSamples);
+             offset = channels.get(c).length;
+             for (int k=0; k<pending.size(); k++)
+             {
+                chunk = pending.get(k);
+                System.arraycopy(chunk, 0, signal, offset, chunk.length);
+                offset += chunk.length;
+             }
+             channels.set(c, signal);
+             pending.clear();
           }
-          channels = temp;          
        }
     }
 
@@ -136,6 +271,8 @@ public class BufferedSound implements Content
      */
     public synchronized Iterator<double[]> getSignals()
     {
+       flatten();
+
        return channels.iterator();       
     }
 
@@ -210,11 +347,12 @@ public class BufferedSound implements Content
     }
 
     /**
-     * Render this BufferedSound on the given Clip
+     * Open the given Clip with this BufferedSound (without
+     * starting it)
      *
      * @param clip    The Clip to use
      */
-    public synchronized void render(Clip clip) 
+    public synchronized void open(Clip clip) 
                         throws LineUnavailableException
     {
        byte[]              rawBytes;       
@@ -223,6 +361,16 @@ public class BufferedSound implements Content
        Iterator<double[]>  iterator;       
        short               scaled;
 
+       if (frames != null) // The frames are already in the right format
+       {
+          rawBytes = new byte[frames.remaining()];
+          frames.duplicate().get(rawBytes);
+          clip.open(format, rawBytes, 0, rawBytes.length);
+          return;
+       }
+
+       flatten();
+
        size   = channels.size();       
        length = getNumberOfSamples();
        frameSize  = format.getFrameSize();
@@ -254,6 +402,17 @@ public class BufferedSound implements Content
 
        // Throws LineUnavailableException
        clip.open(format, rawBytes, 0, rawBytes.length);
+    }
+
+    /**
+     * Render this BufferedSound on the given Clip
+     *
+     * @param clip    The Clip to use
+     */
+    public synchronized void render(Clip clip) 
+                        throws LineUnavailableException
+    {
+       open(clip);
        
        // Start the Clip
        clip.start();
@@ -265,7 +424,7 @@ public class BufferedSound implements Content
      *
      * @param sample   The sample to scale
      */
-    private short scaleSample(double sample)
+    static short scaleSample(double sample)
     {
        short     scaled;
        
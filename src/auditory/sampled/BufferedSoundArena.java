@@ -0,0 +1,197 @@
+package auditory.sampled;
+
+import java.util.*;
+
+/**
+ * A small pool of BufferedSound objects that can be re-used as the
+ * destinations of operations (so that repeated processing does not
+ * allocate new signals).  The BufferedSound objects are keyed by
+ * their sampling rate, number of channels, and length.
+ *
+ * A BufferedSound that is acquired from an arena must be released
+ * (and must not be used afterwards) when it is no longer needed.
+ *
+ * Since an arena is expected to hold only a few different kinds of
+ * BufferedSound objects, they are found using a linear search (which
+ * does not allocate any memory).
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class BufferedSoundArena
+{
+    private ArrayList<Slot>       slots;
+    private int                   maxPerKey;
+
+    /**
+     * The default number of BufferedSound objects kept per key
+     */
+    public static final int   DEFAULT_MAX_PER_KEY = 4;
+
+    /**
+     * Default Constructor
+     */
+    public BufferedSoundArena()
+    {
+       this(DEFAULT_MAX_PER_KEY);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param maxPerKey   The number of BufferedSound objects kept per key
+     */
+    public BufferedSoundArena(int maxPerKey)
+    {
+       this.maxPerKey = maxPerKey;
+       slots          = new ArrayList<Slot>();
+    }
+
+    /**
+     * Acquire a BufferedSound in which all of the samples are 0
+     * (re-using a released BufferedSound if possible)
+     *
+     * @param sampleRate   The sampling rate (in Hz)
+     * @param channels     The number of channels
+     * @param length       The number of samples (per channel)
+     * @return             The BufferedSound
+     */
+    public BufferedSound acquire(float sampleRate, int channels, int length)
+    {
+       BufferedSound              sound;
+       Iterator<double[]>         signals;
+       Slot                       slot;
+
+       sound = null;
+       synchronized(this)
+       {
+          slot = find(sampleRate, channels, length);
+          if ((slot != null) && (slot.size > 0))
+          {
+             slot.size--;
+             sound = slot.sounds[slot.size];
+             slot.sounds[slot.size] = null;
+          }
+       }
+
+       if (sound == null)
+       {
+          sound = new BufferedSound(sampleRate);
+          for (int i=0; i<channels; i++)
+          {
+             sound.addChannel(new double[length]);
+          }
+       }
+       else
+       {
+          signals = sound.getSignals();
+          while (signals.hasNext())
+          {
+             Arrays.fill(signals.next(), 0.0);
+          }
+       }
+
+       return sound;
+    }
+
+    /**
+     * Acquire a BufferedSound with the same sampling rate,
+     * number of channels, and length as the given BufferedSound
+     *
+     * @param src   The BufferedSound to mimic
+     * @return      The BufferedSound
+     */
+    public BufferedSound acquire(BufferedSound src)
+    {
+       return acquire(src.getSampleRate(), src.getNumberOfChannels(),
+                      src.getNumberOfSamples());
+    }
+
+    /**
+     * Clear this arena (i.e., discard all released BufferedSound objects)
+     */
+    public synchronized void clear()
+    {
+       slots.clear();
+    }
+
+    /**
+     * Find the Slot for a particular kind of BufferedSound
+     *
+     * @param sampleRate   The sampling rate (in Hz)
+     * @param channels     The number of channels
+     * @param length       The number of samples (per channel)
+     * @return             The Slot (or null if there is none)
+     */
+    private Slot find(float sampleRate, int channels, int length)
+    {
+       Slot      slot;
+
+       for (int i=0; i<slots.size(); i++)
+       {
+          slot = slots.get(i);
+          if ((slot.sampleRate == sampleRate) && 
+              (slot.channels   == channels)   && 
+              (slot.length     == length)        ) return slot;
+       }
+
+       return null;
+    }
+
+    /**
+     * Release a BufferedSound (so that it can be re-used)
+     *
+     * @param sound   The BufferedSound
+     */
+    public synchronized void release(BufferedSound sound)
+    {
+       float     sampleRate;
+       int       channels, length;
+       Slot      slot;
+
+       sampleRate = sound.getSampleRate();
+       channels   = sound.getNumberOfChannels();
+       length     = sound.getNumberOfSamples();
+
+       slot = find(sampleRate, channels, length);
+       if (slot == null)
+       {
+          slot = new Slot(sampleRate, channels, length, maxPerKey);
+          slots.add(slot);
+       }
+
+       if (slot.size < slot.sounds.length)
+       {
+          slot.sounds[slot.size] = sound;
+          slot.size++;
+       }
+    }
+
+    /**
+     * The released BufferedSound objects of one kind
+     */
+    private static class Slot
+    {
+        private BufferedSound[]   sounds;
+        private float             sampleRate;
+        private int               channels, length, size;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param sampleRate   The sampling rate (in Hz)
+         * @param channels     The number of channels
+         * @param length       The number of samples (per channel)
+         * @param capacity     The number of BufferedSound objects to keep
+         */
+        public Slot(float sampleRate, int channels, int length, 
+                    int capacity)
+        {
+           this.sampleRate = sampleRate;
+           this.channels   = channels;
+           this.length     = length;
+           this.sounds     = new BufferedSound[capacity];
+           this.size       = 0;
+        }
+    }
+}
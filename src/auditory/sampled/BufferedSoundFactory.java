@@ -2,6 +2,7 @@ package auditory.sampled;
 
 import java.io.*;
 import java.net.*;
+import java.util.Arrays;
 import javax.sound.sampled.*;
 
 import io.*;
@@ -13,12 +14,24 @@ import io.*;
  * Notes: One millisecond is 1/1,000     of a second
  *        One microsecond is 1/1,000,000 of a second
  *
+ * If a target sampling rate is set, every BufferedSound that is
+ * created from a resource/file/stream is converted to that rate
+ * (when it is loaded) so that BufferedSound objects can be mixed
+ * with each other and rendered without converting rates.
+ *
+ * Sound files can also be decoded once and then cached (as raw
+ * samples) in a PCMCache, so they are not parsed and converted every
+ * time they are loaded (see setCache()).  By default, nothing is
+ * cached.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public class BufferedSoundFactory
 {
+    private volatile PCMCache      cache;
+    private volatile ResampleOp    resampleOp;
     private ResourceFinder         finder;
 
     /**
@@ -27,6 +40,7 @@ public class BufferedSoundFactory
     public BufferedSoundFactory()
     {
        finder = ResourceFinder.createInstance(this);       
+       cache  = null;
     }
 
     /**
@@ -37,6 +51,58 @@ public class BufferedSoundFactory
     public BufferedSoundFactory(ResourceFinder finder)
     {
        this.finder = finder;       
+       cache       = null;
+    }
+
+    /**
+     * Get the PCMCache that decoded sound files are cached in
+     *
+     * @return  The PCMCache (or null if sound files aren't cached)
+     */
+    public PCMCache getCache()
+    {
+       return cache;
+    }
+
+    /**
+     * Get the sampling rate that loaded BufferedSound objects are
+     * converted to
+     *
+     * @return  The sampling rate (in Hz) or 0 if they aren't converted
+     */
+    public float getTargetSampleRate()
+    {
+       float        rate;
+       ResampleOp   op;
+
+       op   = resampleOp;
+       rate = 0.0f;
+       if (op != null) rate = op.getSampleRate();
+
+       return rate;
+    }
+
+    /**
+     * Set the PCMCache that decoded sound files are cached in
+     * (e.g., new PCMCache() to cache them in java.io.tmpdir)
+     *
+     * @param cache  The PCMCache (or null to not cache sound files)
+     */
+    public void setCache(PCMCache cache)
+    {
+       this.cache = cache;
+    }
+
+    /**
+     * Set the sampling rate that loaded BufferedSound objects are
+     * converted to
+     *
+     * @param sampleRate  The sampling rate (in Hz) or 0 to not convert
+     */
+    public void setTargetSampleRate(float sampleRate)
+    {
+       if (sampleRate > 0.0f) resampleOp = new ResampleOp(sampleRate);
+       else                   resampleOp = null;
     }
 
     /**
@@ -82,6 +148,10 @@ public class BufferedSoundFactory
     /**
      * Create a BufferedSound from a resource/file
      *
+     * If a PCMCache has been set (see setCache()) and the resource is
+     * a file (rather than, say, an entry in a .jar file), the decoded
+     * samples are cached.
+     *
      * @param name    The name of the resource
      */
     public BufferedSound createBufferedSound(String name)
@@ -89,183 +159,151 @@ public class BufferedSoundFactory
                                        UnsupportedAudioFileException
     {
        AudioInputStream        stream;
+       BufferedSound           sound;
+       File                    source;
+       PCMCache                pcm;
        URL                     url;
        
        url    = finder.findURL(name);
-       stream = AudioSystem.getAudioInputStream(url);
+       pcm    = cache;
+       source = null;
+       sound  = null;
+
+       if ((pcm != null) && "file".equals(url.getProtocol()))
+       {
+          try
+          {
+             source = new File(url.toURI());
+             sound  = pcm.read(source);
+          }
+          catch (URISyntaxException | IllegalArgumentException e)
+          {
+             source = null;
+          }
+       }
+
+       if (sound == null)
+       {
+          stream = AudioSystem.getAudioInputStream(url);
+          sound  = decode(stream);
+          if (source != null) pcm.write(source, sound);
+       }
        
-       return createBufferedSound(stream);        
+       return convert(sound);        
     }
 
     /**
      * Create a BufferedSound from an AudioInputStream
      *
+     * The stream is decoded in fixed-size blocks directly into the
+     * channels of the BufferedSound (i.e., the raw bytes are never
+     * held in memory all at once).
+     *
      * @param inStream    The stream to read from
      */
     public BufferedSound createBufferedSound(AudioInputStream inStream)
                                 throws IOException, 
                                        UnsupportedAudioFileException
     {
-       AudioFormat        inFormat, pcmFormat;
-       AudioInputStream   pcmStream;
-       BufferedSound      sound;       
-       byte[]             rawBytes;       
-       double[]           leftSignal, monoSignal, rightSignal;       
-       int                bufferSize, offset, n, sampleLength;
-       int[]              signal;       
-
-       inFormat = inStream.getFormat();
-
-        // Convert ULAW and ALAW to PCM
-        if ((inFormat.getEncoding() == AudioFormat.Encoding.ULAW) ||
-            (inFormat.getEncoding() == AudioFormat.Encoding.ALAW)   ) {
-
-            pcmFormat = new AudioFormat(
-                              AudioFormat.Encoding.PCM_SIGNED,
-                              inFormat.getSampleRate(),
-                              inFormat.getSampleSizeInBits()*2,
-                              inFormat.getChannels(),
-                              inFormat.getFrameSize()*2,
-                              inFormat.getFrameRate(),
-                              true);
-
-            pcmStream = AudioSystem.getAudioInputStream(pcmFormat, 
-                                                        inStream);
-        }
-        else // It is PCM
-        {
-           pcmFormat = inFormat;           
-           pcmStream = inStream;           
-        }
-
-        // Create a buffer and read the raw bytes
-        bufferSize = (int)(pcmStream.getFrameLength()) 
-                           * pcmFormat.getFrameSize();
-
-        rawBytes = new byte[bufferSize];
-        offset   = 0;  
-        n        = 0;        
-        while (pcmStream.available() > 0)
-        {
-           n  = pcmStream.read(rawBytes, offset, bufferSize);
-           offset += n;
-        }
-
-        // Convert the raw bytes
-        if (pcmFormat.getSampleSizeInBits() == 8)
-        {
-           signal = processEightBitQuantization(rawBytes, pcmFormat);
-        }
-        else
-        {
-           signal = processSixteenBitQuantization(rawBytes, pcmFormat);
-        }
-
-        sound = new BufferedSound(pcmFormat.getSampleRate());
-
-        // Process the individual channels
-        if (pcmFormat.getChannels() == 1)  // Mono
-        {
-           sampleLength = signal.length;
-           monoSignal   = new double[sampleLength];           
-
-           for (int i=0; i<sampleLength; i++)
-           {
-              monoSignal[i]  = signal[i]; // Convert to double
-           }
-           sound.addChannel(monoSignal);
-        }
-        else                               // Stereo
-        {
-           sampleLength = signal.length/2;
-           leftSignal   = new double[sampleLength];           
-           rightSignal  = new double[sampleLength];           
-
-           for (int i=0; i<sampleLength; i++)
-           {
-              leftSignal[i]  = signal[2*i];
-              rightSignal[i] = signal[2*i+1];
-           }
-           sound.addChannel(leftSignal);
-           sound.addChannel(rightSignal);
-        }
-        
-        return sound;        
+       return convert(decode(inStream));
     }
 
     /**
-     * Convert the raw bytes for 8-bit samples
+     * Convert a BufferedSound to the target sampling rate
+     * (if necessary)
      *
-     * @param rawBytes   The array of raw bytes
-     * @param format     The AudioFormat
+     * @param sound   The BufferedSound
+     * @return        The converted BufferedSound (or sound itself)
      */
-    private int[] processEightBitQuantization(
-                                        byte[]      rawBytes,
-                                        AudioFormat format)
+    private BufferedSound convert(BufferedSound sound)
     {
-       int         lsb, msb;       
-       int[]       signal;
-       String      encoding;
-       
-       
-       signal = new int[rawBytes.length];
-       encoding = format.getEncoding().toString();
+       ResampleOp         op;
 
-       if (encoding.startsWith("PCM_SIGN"))
-       {
-          for (int i=0; i<rawBytes.length; i++) 
-             signal[i] = rawBytes[i];
-       }
-       else
+       op = resampleOp;
+       if ((op != null) && (sound.getSampleRate() != op.getSampleRate()))
        {
-          for (int i=0; i<rawBytes.length; i++) 
-             signal[i] = rawBytes[i]-128;
+          sound = op.filter(sound, null);
        }
-       
-       return signal;       
+
+       return sound;
     }
 
     /**
-     * Convert the raw bytes for 16-bit samples
+     * Decode an AudioInputStream (in fixed-size blocks directly into
+     * the channels of a BufferedSound)
      *
-     * @param rawBytes   The array of raw bytes
-     * @param format     The AudioFormat
+     * @param inStream    The stream to read from
+     * @return            The BufferedSound
      */
-    private int[] processSixteenBitQuantization(
-                                          byte[]      rawBytes,
-                                          AudioFormat format)
+    private BufferedSound decode(AudioInputStream inStream)
+                          throws IOException, 
+                                 UnsupportedAudioFileException
     {
-       int         lsb, msb;       
-       int[]       signal;
+       boolean            sized;
+       BufferedSound      sound;       
+       double[][]         signals;       
+       int                capacity, channels, length, n;
+       long               frameLength;
+       SampleReader       reader;
+
+       reader      = new SampleReader(inStream);
+       channels    = reader.getNumberOfChannels();
+       frameLength = reader.getFrameLength();
 
-       signal = new int[rawBytes.length / 2];
+       // Use the frame length (if it is known) to size the channels
+       sized       = (frameLength > 0) && (frameLength <= Integer.MAX_VALUE);
+       if (sized)
+          capacity = (int)frameLength;
+       else
+          capacity = reader.getBlockFrames();
 
-       if (format.isBigEndian())  // Big-endian
+       signals = new double[channels][capacity];
+       length  = 0;
+       while ((n = reader.read(signals, length, capacity-length)) > 0)
        {
-          for (int i=0; i<signal.length; i++)
-          {
-             // First byte is high-order byte
-             msb = (int) rawBytes[2*i];
+          length += n;
 
-             // Second byte is low-order byte
-             lsb = (int) rawBytes[2*i+1];
+          // Grow the channels if the frame length is unknown
+          if (length == capacity)
+          {
+             if (sized) break;
 
-             signal[i] = msb << 8 | (255 & lsb);
+             capacity = capacity*2;
+             for (int c=0; c<channels; c++)
+                signals[c] = Arrays.copyOf(signals[c], capacity);
           }
-       } 
-       else                       // Little-endian
-       {
-          for (int i=0; i<signal.length; i++)
-          {
-             // First byte is low-order byte
-             lsb = (int) rawBytes[2*i];
+       }
 
-             // Second byte is high-order byte
-             msb = (int) rawBytes[2*i+1];
+       sound = new BufferedSound(reader.getSampleRate());
+       for (int c=0; c<channels; c++)
+       {
+          if (length < signals[c].length) 
+             signals[c] = Arrays.copyOf(signals[c], length);
 
-             signal[i] = msb << 8 | (255 & lsb);
-          }
+          sound.addChannel(signals[c]);
        }
-       return signal;       
+
+       return sound;
+    }
+
+    /**
+     * Create a SampleReader (i.e., a pull-based source that decodes
+     * the content block-by-block) from a resource/file.
+     * This is appropriate for long content that should
+     * not be held in memory in its entirety.
+     *
+     * @param name    The name of the resource
+     */
+    public SampleReader createSampleReader(String name)
+                                throws IOException, 
+                                       UnsupportedAudioFileException
+    {
+       AudioInputStream        stream;
+       URL                     url;
+       
+       url    = finder.findURL(name);
+       stream = AudioSystem.getAudioInputStream(url);
+       
+       return new SampleReader(stream);        
     }
 }
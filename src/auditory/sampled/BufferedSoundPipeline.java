@@ -0,0 +1,287 @@
+package auditory.sampled;
+
+import java.util.*;
+
+/**
+ * A BufferedSoundUnaryOp that applies a sequence of operations
+ * (i.e., a pipeline) to a BufferedSound.
+ *
+ * Applying each operation with its own filter() call allocates a
+ * destination for every operation and makes a complete pass over
+ * memory for every operation.  A pipeline, on the other hand,
+ * allocates one destination and moves through it one (cache-sized)
+ * block at a time, applying every operation to a block before moving
+ * on to the next one.
+ *
+ * Operations that cannot be applied block-by-block (i.e., whose
+ * createBlockFilter() method returns null, like ReverseOp) are
+ * applied to the complete signal at the appropriate point in the
+ * pipeline.  This requires one additional (scratch) signal.
+ * Operations that change the length of a signal (i.e., SpeedChangeOp
+ * and ResampleOp) can't be used in a pipeline.
+ *
+ * For example:
+ * <pre>
+ *    pipeline = new BufferedSoundPipeline();
+ *    pipeline.append(new NoiseOp(100.0));
+ *    pipeline.append(new FIRFilterOp(fir));
+ *    pipeline.append(new InvertOp());
+ *    pipeline.append(new MultiplyOp(), envelope);
+ *
+ *    result = pipeline.filter(sound, null);
+ * </pre>
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class BufferedSoundPipeline extends    AbstractBufferedSoundOp
+                                   implements BufferedSoundUnaryOp
+{
+    private ArrayList<Stage>      stages;
+    private int                   blockSize;
+
+    /**
+     * The default number of samples in a block (i.e., 16KB of samples)
+     */
+    public static final int       DEFAULT_BLOCK_SIZE = 2048;
+
+    /**
+     * Default Constructor
+     */
+    public BufferedSoundPipeline()
+    {
+       this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param blockSize   The number of samples in a block
+     */
+    public BufferedSoundPipeline(int blockSize)
+    {
+       this.blockSize = Math.max(1, blockSize);
+       stages         = new ArrayList<Stage>();
+    }
+
+    /**
+     * Append a unary operation to this pipeline
+     *
+     * @param op   The operation
+     * @return     This pipeline (so that calls can be chained)
+     * @throws IllegalArgumentException if the operation changes the length
+     */
+    public BufferedSoundPipeline append(AbstractBufferedSoundUnaryOp op)
+                                 throws IllegalArgumentException
+    {
+       // Every stage writes to the same destination
+       if ((op instanceof SpeedChangeOp) || (op instanceof ResampleOp))
+          throw(new IllegalArgumentException("Length must not change"));
+
+       stages.add(new Stage(op, null, null));
+
+       return this;
+    }
+
+    /**
+     * Append a binary operation to this pipeline.  The result of the
+     * previous stage is the first operand and the given BufferedSound
+     * is the second operand.
+     *
+     * @param op       The operation
+     * @param operand  The second operand
+     * @return         This pipeline (so that calls can be chained)
+     */
+    public BufferedSoundPipeline append(AbstractBufferedSoundBinaryOp op,
+                                        BufferedSound operand)
+    {
+       stages.add(new Stage(null, op, operand));
+
+       return this;
+    }
+
+    /**
+     * Apply all of the operations in this pipeline.  If the
+     * destination is null, a BufferedSound with an appropriate
+     * AudioFormat and length is created and returned.
+     *
+     * @param src   The operand (i.e., sound to operate on)
+     * @param dest  An empty sound to hold the result (or null)
+     * @throws      IllegalArgumentException if the sounds don't match
+     */
+    public BufferedSound filter(BufferedSound src, BufferedSound dest)
+    {
+       ArrayList<Iterator<double[]>>   operands;
+       double[]                        scratch;
+       Iterator<double[]>              source, destination;
+
+       for (int s=0; s<stages.size(); s++)
+       {
+          if (stages.get(s).operand != null)
+             checkArguments(src, stages.get(s).operand);
+       }
+
+       // Construct the destination if necessary; otherwise check it
+       if (dest == null)
+          dest = createCompatibleDestinationSound(src);
+       else
+          checkArguments(src, dest);
+
+       operands = new ArrayList<Iterator<double[]>>();
+       for (int s=0; s<stages.size(); s++)
+       {
+          if (stages.get(s).operand == null) operands.add(null);
+          else operands.add(stages.get(s).operand.getSignals());
+       }
+
+       source      = src.getSignals();
+       destination = dest.getSignals();
+       scratch     = null;
+       while (source.hasNext())
+       {
+          scratch = applyStages(source.next(), destination.next(),
+                                operands, scratch);
+       }
+
+       return dest;
+    }
+
+    /**
+     * Apply all of the stages to one channel
+     *
+     * @param in        The source signal
+     * @param out       The destination signal
+     * @param operands  The signals of the second operands (by stage)
+     * @param scratch   A scratch signal (or null if not yet needed)
+     * @return          The scratch signal (for re-use)
+     */
+    private double[] applyStages(double[] in, double[] out,
+                                 ArrayList<Iterator<double[]>> operands,
+                                 double[] scratch)
+    {
+       ArrayList<BlockFilter>   fused;
+       BlockFilter              bf;
+       double[]                 current, operand;
+       Stage                    stage;
+
+       current = in;
+       fused   = new ArrayList<BlockFilter>();
+
+       for (int s=0; s<stages.size(); s++)
+       {
+          stage   = stages.get(s);
+          operand = null;
+          if (operands.get(s) != null) operand = operands.get(s).next();
+
+          if (stage.unary != null) bf = stage.unary.createBlockFilter();
+          else                     bf = stage.binary.createBlockFilter(operand);
+
+          if (bf != null)
+          {
+             fused.add(bf);
+          }
+          else
+          {
+             // Run the fused stages that precede this one
+             if (!fused.isEmpty())
+             {
+                applyFused(fused, current, out);
+                fused.clear();
+                current = out;
+             }
+
+             // Apply this stage to the complete signal (using the
+             // previous result as the source)
+             if (current == out)
+             {
+                if (scratch == null) scratch = new double[out.length];
+                System.arraycopy(out, 0, scratch, 0, out.length);
+                current = scratch;
+             }
+             Arrays.fill(out, 0.0);
+
+             if (stage.unary != null)
+                stage.unary.applyFilter(current, out);
+             else
+                stage.binary.applyFilter(current, operand, out);
+
+             current = out;
+          }
+       }
+
+       applyFused(fused, current, out);
+
+       return scratch;
+    }
+
+    /**
+     * Apply a sequence of BlockFilter objects, one block at a time
+     *
+     * @param filters   The BlockFilter objects
+     * @param in        The source signal
+     * @param out       The destination signal
+     */
+    private void applyFused(ArrayList<BlockFilter> filters,
+                            double[] in, double[] out)
+    {
+       int      length, n;
+
+       if ((in != out) && filters.isEmpty())
+       {
+          System.arraycopy(in, 0, out, 0, out.length);
+       }
+       else if (!filters.isEmpty())
+       {
+          length = out.length;
+          for (int offset=0; offset<length; offset+=blockSize)
+          {
+             n = Math.min(blockSize, length-offset);
+
+             if (in != out) System.arraycopy(in, offset, out, offset, n);
+
+             for (int f=0; f<filters.size(); f++)
+             {
+                filters.get(f).filter(out, offset, n);
+             }
+          }
+       }
+    }
+
+    /**
+     * Can this pipeline be executed in place?
+     *
+     * @return   true (a scratch signal is used for any stage that 
+     *           can't be executed in place)
+     */
+    public boolean supportsInPlace()
+    {
+       return true;
+    }
+
+    /**
+     * A Stage in the pipeline (i.e., a unary operation or a
+     * binary operation and its second operand)
+     */
+    private static class Stage
+    {
+        private AbstractBufferedSoundBinaryOp     binary;
+        private AbstractBufferedSoundUnaryOp      unary;
+        private BufferedSound                     operand;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param unary    The unary operation (or null)
+         * @param binary   The binary operation (or null)
+         * @param operand  The second operand of the binary operation
+         */
+        public Stage(AbstractBufferedSoundUnaryOp  unary,
+                     AbstractBufferedSoundBinaryOp binary,
+                     BufferedSound                 operand)
+        {
+           this.unary   = unary;
+           this.binary  = binary;
+           this.operand = operand;
+        }
+    }
+}
@@ -10,6 +10,13 @@ import javax.sound.sampled.*;
  */
 public interface Content
 {
+    /**
+     * Open a Clip with this Content (without starting it)
+     *
+     * @param clip   The Clip to open
+     */
+    public abstract void open(Clip clip) throws LineUnavailableException;
+
     /**
      * Render this Content
      *
@@ -0,0 +1,158 @@
+package auditory.sampled;
+
+/**
+ * An iterative, radix-2 Fast Fourier Transform of a fixed size.
+ *
+ * The twiddle factors and the bit-reversal permutation are
+ * computed once (when the FFT is constructed) and are never
+ * modified afterwards.  Hence, a single FFT object can be used
+ * by multiple threads at the same time.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class FFT
+{
+    private double[]       cos, sin;
+    private int            size;
+    private int[]          reversed;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param size   The size of the transform (a power of 2)
+     * @throws IllegalArgumentException if size is not a power of 2
+     */
+    public FFT(int size) throws IllegalArgumentException
+    {
+       int     bits;
+
+       if ((size < 1) || ((size & (size-1)) != 0))
+          throw(new IllegalArgumentException("Size must be a power of 2"));
+
+       this.size = size;
+
+       cos = new double[size/2];
+       sin = new double[size/2];
+       for (int i=0; i<size/2; i++)
+       {
+          cos[i] = Math.cos(-2.0*Math.PI*i/size);
+          sin[i] = Math.sin(-2.0*Math.PI*i/size);
+       }
+
+       bits     = Integer.numberOfTrailingZeros(size);
+       reversed = new int[size];
+       for (int i=0; i<size; i++)
+       {
+          if (bits == 0) reversed[i] = 0;
+          else           reversed[i] = Integer.reverse(i) >>> (32-bits);
+       }
+    }
+
+    /**
+     * Get the size of this FFT
+     *
+     * @return   The size
+     */
+    public int getSize()
+    {
+       return size;
+    }
+
+    /**
+     * Get the smallest power of 2 that is at least as large
+     * as the given value
+     *
+     * @param n   The value
+     * @return    The power of 2
+     */
+    public static int nextPowerOfTwo(int n)
+    {
+       int    p;
+
+       p = 1;
+       while (p < n) p = p << 1;
+
+       return p;
+    }
+
+    /**
+     * Perform the inverse transform (in place, including the
+     * 1/size scaling)
+     *
+     * @param re   The real parts
+     * @param im   The imaginary parts
+     */
+    public void inverse(double[] re, double[] im)
+    {
+       double    scale;
+
+       transform(re, im, -1.0);
+
+       scale = 1.0/size;
+       for (int i=0; i<size; i++)
+       {
+          re[i] *= scale;
+          im[i] *= scale;
+       }
+    }
+
+    /**
+     * Perform the forward transform (in place)
+     *
+     * @param re   The real parts
+     * @param im   The imaginary parts
+     */
+    public void transform(double[] re, double[] im)
+    {
+       transform(re, im, 1.0);
+    }
+
+    /**
+     * Perform the transform (in place)
+     *
+     * @param re    The real parts
+     * @param im    The imaginary parts
+     * @param sign  1.0 for the forward transform; -1.0 for the inverse
+     */
+    private void transform(double[] re, double[] im, double sign)
+    {
+       double    t, tre, tim, wre, wim;
+       int       half, j, step;
+
+       // Put the elements in bit-reversed order
+       for (int i=0; i<size; i++)
+       {
+          j = reversed[i];
+          if (j > i)
+          {
+             t = re[i]; re[i] = re[j]; re[j] = t;
+             t = im[i]; im[i] = im[j]; im[j] = t;
+          }
+       }
+
+       // Combine the butterflies
+       for (int length=2; length<=size; length=length << 1)
+       {
+          half = length >> 1;
+          step = size / length;
+          for (int start=0; start<size; start+=length)
+          {
+             for (int k=0; k<half; k++)
+             {
+                wre = cos[k*step];
+                wim = sign * sin[k*step];
+
+                j   = start+k+half;
+                tre = re[j]*wre - im[j]*wim;
+                tim = re[j]*wim + im[j]*wre;
+
+                re[j] = re[start+k] - tre;
+                im[j] = im[start+k] - tim;
+                re[start+k] += tre;
+                im[start+k] += tim;
+             }
+          }
+       }
+    }
+}
@@ -3,13 +3,19 @@ package auditory.sampled;
 /**
  * An encapsulation of a Finite Impulse Response (FIR) filter
  *
+ * The (frequency domain) spectrum of the kernel that is used by
+ * FFT-based convolution is calculated the first time it is
+ * needed and is then cached.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public class FIRFilter
 {
-    private double[]     weights;
+    private double[]     kernel, weights;
+    private double[][][] spectra;
+    private int          partitionSize;
 
     /**
      * Explicit Value Constructor
@@ -59,4 +65,63 @@ public class FIRFilter
        
        return weight;       
     }
+
+    /**
+     * Get the kernel of this FIR filter (i.e., the weights
+     * returned by getWeight() for every index)
+     *
+     * Note: The returned array must not be modified
+     *
+     * @return   The kernel
+     */
+    synchronized double[] getKernel()
+    {
+       if (kernel == null)
+       {
+          kernel = new double[getLength()];
+          for (int k=0; k<kernel.length; k++)
+          {
+             kernel[k] = getWeight(k);
+          }
+       }
+
+       return kernel;
+    }
+
+    /**
+     * Get the spectra of the kernel after it has been split into
+     * partitions of the given size.  Each partition is zero-padded
+     * to the size of the FFT (which must be twice the partition size).
+     *
+     * The spectra for the most recently requested partition size
+     * are cached.
+     *
+     * Note: The returned arrays must not be modified
+     *
+     * @param fft    The FFT to use
+     * @return       The spectra indexed by [partition][0=re,1=im][bin]
+     */
+    synchronized double[][][] getPartitionSpectra(FFT fft)
+    {
+       double[]     h;
+       int          n, partitions, size;
+
+       size = fft.getSize()/2;
+       if ((spectra == null) || (partitionSize != size))
+       {
+          h          = getKernel();
+          partitions = Math.max(1, (h.length + size - 1)/size);
+          spectra    = new double[partitions][2][fft.getSize()];
+
+          for (int m=0; m<partitions; m++)
+          {
+             n = Math.min(size, h.length - m*size);
+             if (n > 0) System.arraycopy(h, m*size, spectra[m][0], 0, n);
+             fft.transform(spectra[m][0], spectra[m][1]);
+          }
+          partitionSize = size;
+       }
+
+       return spectra;
+    }
 }
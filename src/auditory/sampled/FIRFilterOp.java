@@ -1,17 +1,32 @@
 package auditory.sampled;
 
+import java.util.Arrays;
+
 /**
  * A BufferedSoundUnaryOp that applies a FIRFilter to a
  * BufferedSound
  *
+ * Short filters are applied using direct convolution.  Long filters
+ * are applied using (uniformly partitioned) overlap-add convolution
+ * in the frequency domain, which requires O(log K) rather than O(K)
+ * operations per sample for a filter with K weights.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public class FIRFilterOp extends AbstractBufferedSoundUnaryOp
 {
+    private FFT                fft;
     private FIRFilter          fir;
-    
+
+    /**
+     * The longest filter that is applied using direct convolution
+     */
+    public static final int    DIRECT_THRESHOLD   = 64;
+
+    private static final int   MAX_PARTITION_SIZE = 4096;
+
     /**
      * Explicit Value Constructor
      *
@@ -19,7 +34,16 @@ public class FIRFilterOp extends AbstractBufferedSoundUnaryOp
      */
     public FIRFilterOp(FIRFilter fir)
     {
-       this.fir = fir;       
+       int        n;
+
+       this.fir = fir;
+
+       n = fir.getLength();
+       if (n > DIRECT_THRESHOLD)
+       {
+          fft = new FFT(2*Math.min(FFT.nextPowerOfTwo(n),
+                                   MAX_PARTITION_SIZE));
+       }
     }
 
     /**
@@ -30,27 +54,236 @@ public class FIRFilterOp extends AbstractBufferedSoundUnaryOp
      */
     public void applyFilter(double[] source, double[] destination)
     {
-       double    weight;       
        int       length, n;
-       
-       n         = fir.getLength();
-       length    = source.length;
-       
-       // Copy the first n-2 samples
-       for (int i=0; i<n-1; i++)
+
+       if (fft == null)
+       {
+          applyFilter(source, destination, 0, source.length);
+       }
+       else
+       {
+          n         = fir.getLength();
+          length    = source.length;
+
+          // Copy the first n-1 samples
+          for (int i=0; i<Math.min(n-1, length); i++)
+          {
+             destination[i]  = source[i];
+          }
+
+          // Filter the remaining samples
+          applyFFTFilter(source, destination);
+       }
+    }
+
+    /**
+     * Apply a FIRFilter to a range of samples using direct convolution
+     * (which is only possible if the filter is short)
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       double    sum;
+       double[]  weights;
+       int       n;
+
+       if (fft != null)
+       {
+          super.applyFilter(source, destination, from, to);
+          return;
+       }
+
+       weights   = fir.getKernel();
+       n         = weights.length;
+
+       // Copy the first n-1 samples
+       for (int i=from; i<Math.min(n-1, to); i++)
        {
           destination[i]  = source[i];
        }
-       
+
        // Filter the remaining samples
-       for (int i=n-1; i<length; i++)
+       for (int i=Math.max(n-1, from); i<to; i++)
        {
+          sum = 0.0;
           for (int k=0; k<n; k++)
           {
-             weight        = fir.getWeight(k);
-             
-             destination[i]  += source[i-k]  * weight;
+             sum += source[i-k] * weights[k];
           }
+          destination[i] += sum;
        }
     }
+
+    /**
+     * Create a BlockFilter that applies this FIRFilter to each block
+     * using direct convolution (which is only possible if the
+     * filter is short)
+     *
+     * @return   The BlockFilter (or null if the filter is long)
+     */
+    public BlockFilter createBlockFilter()
+    {
+       BlockFilter     result;
+
+       result = null;
+       if (fft == null) result = new DirectBlockFilter(fir.getKernel());
+
+       return result;
+    }
+
+    /**
+     * Filter all but the first n-1 samples using partitioned
+     * overlap-add convolution.
+     *
+     * The source is processed in blocks that are the size of a
+     * partition of the kernel.  The spectra of the most recent
+     * blocks are kept in a ring so that each output block requires
+     * only one forward and one inverse transform.  Each block of
+     * the destination is written after the corresponding block of
+     * the source is read.
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     */
+    private void applyFFTFilter(double[] source, double[] destination)
+    {
+       double[]     accIm, accRe, hIm, hRe, overlap, xIm, xRe;
+       double[][][] h, x;
+       int          blocks, count, length, n, partitions, size, slot, start;
+
+       n          = fir.getLength();
+       length     = source.length;
+       size       = fft.getSize()/2;
+       h          = fir.getPartitionSpectra(fft);
+       partitions = h.length;
+       blocks     = (length + size - 1)/size;
+
+       x          = new double[partitions][2][fft.getSize()];
+       accRe      = new double[fft.getSize()];
+       accIm      = new double[fft.getSize()];
+       overlap    = new double[size];
+
+       for (int b=0; b<blocks; b++)
+       {
+          start = b*size;
+          count = Math.min(size, length-start);
+
+          // Transform the current (zero-padded) block of the source
+          slot = b % partitions;
+          xRe  = x[slot][0];
+          xIm  = x[slot][1];
+          Arrays.fill(xRe, 0.0);
+          Arrays.fill(xIm, 0.0);
+          System.arraycopy(source, start, xRe, 0, count);
+          fft.transform(xRe, xIm);
+
+          // Accumulate the products with each partition of the kernel
+          Arrays.fill(accRe, 0.0);
+          Arrays.fill(accIm, 0.0);
+          for (int m=0; m<Math.min(b+1, partitions); m++)
+          {
+             xRe = x[(b-m) % partitions][0];
+             xIm = x[(b-m) % partitions][1];
+             hRe = h[m][0];
+             hIm = h[m][1];
+             for (int j=0; j<accRe.length; j++)
+             {
+                accRe[j] += xRe[j]*hRe[j] - xIm[j]*hIm[j];
+                accIm[j] += xRe[j]*hIm[j] + xIm[j]*hRe[j];
+             }
+          }
+          fft.inverse(accRe, accIm);
+
+          // Overlap-add
+          for (int j=0; j<count; j++)
+          {
+             if (start+j >= n-1) destination[start+j] += accRe[j]+overlap[j];
+          }
+          System.arraycopy(accRe, size, overlap, 0, size);
+       }
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * Short filters are applied directly, so any range can be
+     * processed independently.  Long filters are applied block-by-block
+     * (with a history of block spectra) so each channel must be
+     * processed in a single pass.
+     *
+     * @return   STATELESS or CHANNEL_STATE
+     */
+    public StateContract getStateContract()
+    {
+       StateContract     contract;
+
+       if (fft == null) contract = StateContract.STATELESS;
+       else             contract = StateContract.CHANNEL_STATE;
+
+       return contract;
+    }
+
+    /**
+     * A DirectBlockFilter applies a (short) FIRFilter to one signal
+     * a block at a time.  It keeps the last n-1 samples of the
+     * previous block so that the blocks can be filtered in place.
+     */
+    private class DirectBlockFilter implements BlockFilter
+    {
+        private double[]       history, weights, work;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param weights   The weights to apply
+         */
+        public DirectBlockFilter(double[] weights)
+        {
+           this.weights = weights;
+           history      = new double[Math.max(0, weights.length-1)];
+        }
+
+        /**
+         * Filter the next block of the signal (in place)
+         * (required by BlockFilter)
+         *
+         * @param block    The signal containing the block
+         * @param offset   The index of the first sample in the block
+         * @param length   The number of samples in the block
+         */
+        public void filter(double[] block, int offset, int length)
+        {
+           double     sum;
+           int        h, n;
+
+           n = weights.length;
+           h = history.length;
+
+           // Combine the history and the (unfiltered) block
+           if ((work == null) || (work.length < h+length))
+              work = new double[h+length];
+           System.arraycopy(history, 0, work, 0, h);
+           System.arraycopy(block, offset, work, h, length);
+
+           // The first n-1 samples of the signal are copied (i.e.,
+           // left unchanged) and the rest are filtered
+           for (int j=Math.max(0, h-offset); j<length; j++)
+           {
+              sum = 0.0;
+              for (int k=0; k<n; k++)
+              {
+                 sum += work[h+j-k] * weights[k];
+              }
+              block[offset+j] = sum;
+           }
+
+           // Keep the last n-1 (unfiltered) samples
+           System.arraycopy(work, length, history, 0, h);
+        }
+    }
 }
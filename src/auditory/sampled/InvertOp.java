@@ -17,13 +17,62 @@ public class InvertOp extends    AbstractBufferedSoundUnaryOp
      */
     public void applyFilter(double[] source, double[] destination)
     {
-       int       length;
-       
-       length    = source.length;
-       
-       for (int i=0; i<length; i++)
+       applyFilter(source, destination, 0, source.length);
+    }
+
+    /**
+     * Invert the signal [for a range of samples]
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       for (int i=from; i<to; i++)
        {
           destination[i]  = -source[i];
        }
     }
+
+    /**
+     * Create a BlockFilter that inverts each block
+     *
+     * @return   The BlockFilter
+     */
+    public BlockFilter createBlockFilter()
+    {
+       return new BlockFilter()
+          {
+             public void filter(double[] block, int offset, int length)
+             {
+                for (int i=offset; i<offset+length; i++)
+                {
+                   block[i] = -block[i];
+                }
+             }
+          };
+    }
+
+    /**
+     * Can this operation be executed in place?
+     *
+     * @return   true (each sample depends only on the same sample)
+     */
+    public boolean supportsInPlace()
+    {
+       return true;
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * @return   STATELESS
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.STATELESS;
+    }
 }
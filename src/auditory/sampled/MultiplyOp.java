@@ -20,9 +20,65 @@ public class MultiplyOp extends AbstractBufferedSoundBinaryOp
     public void applyFilter(double[] source1, double[] source2,
                             double[] destination)
     {
-       for (int i=0; i<source1.length; i++)
+       applyFilter(source1, source2, destination, 0, source1.length);
+    }
+
+    /**
+     * Multiply (sample-by-sample) the two signals [for a range of samples]
+     *
+     * @param source1     The signal in source 1
+     * @param source2     The signal in source 2
+     * @param destination The resulting destination signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source1, double[] source2,
+                            double[] destination, int from, int to)
+    {
+       for (int i=from; i<to; i++)
        {
              destination[i] = source1[i] * source2[i];             
        }
     }
+
+    /**
+     * Create a BlockFilter that multiplies (sample-by-sample) the given
+     * signal to each block
+     *
+     * @param source2   The signal in source 2
+     * @return          The BlockFilter
+     */
+    public BlockFilter createBlockFilter(final double[] source2)
+    {
+       return new BlockFilter()
+          {
+             public void filter(double[] block, int offset, int length)
+             {
+                for (int i=offset; i<offset+length; i++)
+                {
+                   block[i] = block[i] * source2[i];
+                }
+             }
+          };
+    }
+
+    /**
+     * Can this operation be executed in place?
+     *
+     * @return   true (each sample depends only on the same samples)
+     */
+    public boolean supportsInPlace()
+    {
+       return true;
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * @return   STATELESS
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.STATELESS;
+    }
 }
@@ -43,4 +43,46 @@ public class NoiseOp extends    AbstractBufferedSoundUnaryOp
           destination[i]  = source[i]  + (max - rng.nextDouble()*max*2.0);
        }
     }
+
+    /**
+     * Create a BlockFilter that adds noise to each block
+     *
+     * @return   The BlockFilter
+     */
+    public BlockFilter createBlockFilter()
+    {
+       return new BlockFilter()
+          {
+             public void filter(double[] block, int offset, int length)
+             {
+                for (int i=offset; i<offset+length; i++)
+                {
+                   block[i] = block[i] + (max - rng.nextDouble()*max*2.0);
+                }
+             }
+          };
+    }
+
+    /**
+     * Can this operation be executed in place?
+     *
+     * @return   true (each sample depends only on the same sample)
+     */
+    public boolean supportsInPlace()
+    {
+       return true;
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * The random number generator is shared by all of the
+     * channels so this operation must be executed sequentially.
+     *
+     * @return   SHARED_STATE
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.SHARED_STATE;
+    }
 }
@@ -0,0 +1,246 @@
+package auditory.sampled;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * A cache of decoded sampled auditory content.
+ *
+ * The first time a sound file is decoded, its samples are written to
+ * a "sidecar" file that contains a (versioned) header followed by the
+ * samples themselves (as 16-bit, big-endian, interleaved frames, i.e.,
+ * exactly as a BufferedSound renders them).  After that, the sidecar
+ * is memory-mapped and the BufferedSound is backed by the mapping, so
+ * the sound file is not parsed or converted and the samples aren't
+ * copied until they are needed.  A sidecar is ignored (and replaced)
+ * if the size or modification time of the sound file has changed or
+ * if it was written by a different version.
+ *
+ * Sidecars are written to a cache directory (never next to the sound
+ * files).  Only sound files in the file system (i.e., not in a .jar
+ * file) are cached.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class PCMCache
+{
+    private File                 directory;
+
+    /**
+     * The extension of sidecar files
+     */
+    public static final String   EXTENSION   = ".pcm";
+
+    /**
+     * The version of the sidecar format
+     */
+    public static final int      VERSION     = 2;
+
+    private static final int     BLOCK_SIZE  = 65536;
+    private static final int     HEADER_SIZE = 36;
+    private static final int     MAGIC       = 0x42535043; // "BSPC"
+
+    /**
+     * The name of the default cache directory (in java.io.tmpdir)
+     */
+    public static final String   DEFAULT_DIRECTORY = "shoot-everything-pcm";
+
+    /**
+     * Default Constructor (sidecars are written to a directory
+     * in java.io.tmpdir)
+     */
+    public PCMCache()
+    {
+       this(new File(System.getProperty("java.io.tmpdir"), DEFAULT_DIRECTORY));
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param directory   The directory to write sidecars to
+     */
+    public PCMCache(File directory)
+    {
+       this.directory = directory;
+    }
+
+    /**
+     * Get the directory that sidecars are written to
+     *
+     * @return   The directory
+     */
+    public File getDirectory()
+    {
+       return directory;
+    }
+
+    /**
+     * Get the sidecar for a sound file
+     *
+     * @param source   The sound file
+     * @return         The sidecar file
+     */
+    public File getSidecar(File source)
+    {
+       String    name;
+
+       // Include the (hash of the) path so that files with the
+       // same name in different directories don't collide
+       name = source.getName() + "." +
+              Integer.toHexString(source.getAbsolutePath().hashCode());
+
+       return new File(directory, name + EXTENSION);
+    }
+
+    /**
+     * Read a sound from the sidecar of a sound file
+     *
+     * @param source   The sound file
+     * @return         The BufferedSound (or null if there is no valid sidecar)
+     */
+    public BufferedSound read(File source)
+    {
+       BufferedSound      sound;
+       ByteBuffer         buffer;
+       File               sidecar;
+       FileChannel        channel;
+       float              sampleRate;
+       int                channels, frames;
+       RandomAccessFile   file;
+
+       sidecar = getSidecar(source);
+       if (!sidecar.isFile()) return null;
+
+       sound = null;
+       try
+       {
+          file    = new RandomAccessFile(sidecar, "r");
+          channel = file.getChannel();
+          try
+          {
+             if (channel.size() < HEADER_SIZE) return null;
+
+             buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                                  0, channel.size());
+
+             if ((buffer.getInt()  != MAGIC)              ||
+                 (buffer.getInt()  != VERSION)            ||
+                 (buffer.getLong() != source.length())    ||
+                 (buffer.getLong() != source.lastModified())) return null;
+
+             sampleRate = buffer.getFloat();
+             channels   = buffer.getInt();
+             frames     = buffer.getInt();
+
+             // Make sure the sidecar is complete
+             if ((channels <= 0) || (frames < 0) || (channel.size() !=
+                  HEADER_SIZE + 2L * channels * frames)) return null;
+
+             // The mapping remains valid after the file is closed
+             sound = new BufferedSound(sampleRate, channels, buffer);
+          }
+          finally
+          {
+             file.close();
+          }
+       }
+       catch (IOException | RuntimeException e)
+       {
+          sound = null; // Decode the sound file instead
+       }
+
+       return sound;
+    }
+
+    /**
+     * Write the sidecar for a sound file.  The sidecar is written to
+     * a temporary file that is then renamed, so a sidecar is never
+     * incomplete.  Nothing is written if the sidecar can't be written
+     * (e.g., if the directory is read-only).
+     *
+     * @param source   The sound file
+     * @param sound    The decoded sound
+     */
+    public void write(File source, BufferedSound sound)
+    {
+       ByteBuffer           buffer;
+       double[][]           signals;
+       FileChannel          channel;
+       File                 sidecar, temp;
+       FileOutputStream     out;
+       Iterator<double[]>   i;
+       int                  n;
+
+       sidecar = getSidecar(source);
+       temp    = null;
+       try
+       {
+          if (!directory.isDirectory()) directory.mkdirs();
+
+          temp    = File.createTempFile(sidecar.getName(), ".tmp",
+                                        sidecar.getParentFile());
+          out     = new FileOutputStream(temp);
+          channel = out.getChannel();
+          try
+          {
+             buffer = ByteBuffer.allocate(BLOCK_SIZE);
+             buffer.putInt(MAGIC);
+             buffer.putInt(VERSION);
+             buffer.putLong(source.length());
+             buffer.putLong(source.lastModified());
+             buffer.putFloat(sound.getSampleRate());
+             buffer.putInt(sound.getNumberOfChannels());
+             buffer.putInt(sound.getNumberOfSamples());
+
+             signals = new double[sound.getNumberOfChannels()][];
+             i       = sound.getSignals();
+             for (int c=0; c<signals.length; c++) signals[c] = i.next();
+
+             // Interleave the (scaled) samples
+             n = sound.getNumberOfSamples();
+             for (int f=0; f<n; f++)
+             {
+                if (buffer.remaining() < 2*signals.length) 
+                   drain(buffer, channel);
+
+                for (int c=0; c<signals.length; c++)
+                   buffer.putShort(BufferedSound.scaleSample(signals[c][f]));
+             }
+             drain(buffer, channel);
+          }
+          finally
+          {
+             out.close();
+          }
+
+          Files.move(temp.toPath(), sidecar.toPath(),
+                     StandardCopyOption.REPLACE_EXISTING);
+       }
+       catch (IOException ioe)
+       {
+          // The sound just won't be cached
+          if (temp != null) temp.delete();
+       }
+    }
+
+    /**
+     * Write the content of a buffer to a channel (and clear it)
+     *
+     * @param buffer    The buffer
+     * @param channel   The channel
+     */
+    private void drain(ByteBuffer buffer, FileChannel channel)
+                 throws IOException
+    {
+       buffer.flip();
+       while (buffer.hasRemaining())
+       {
+          channel.write(buffer);
+       }
+       buffer.clear();
+    }
+}
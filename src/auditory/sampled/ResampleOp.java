@@ -0,0 +1,134 @@
+package auditory.sampled;
+
+/**
+ * A BufferedSoundUnaryOp that converts a BufferedSound to a
+ * particular sampling rate (without changing the speed at which
+ * it is presented) using a band-limited (polyphase) Resampler.
+ *
+ * The Resampler (and its filter table) for the most recent source
+ * sampling rate is cached, so converting many sounds that have the
+ * same sampling rate only calculates the table once.  Calls to
+ * filter() are serialized so that the cached Resampler can't change
+ * while it is being used.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class ResampleOp extends AbstractBufferedSoundUnaryOp
+{
+    private float               sampleRate, sourceRate;
+    private volatile Resampler  resampler;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param sampleRate   The sampling rate of the result (in Hz)
+     */
+    public ResampleOp(float sampleRate)
+    {
+       this.sampleRate = sampleRate;
+    }
+
+    /**
+     * Creates a BufferedSound with the target sampling rate and
+     * the corresponding length.
+     *
+     * @param src    The source BufferedSound
+     */
+    public BufferedSound createCompatibleDestinationSound(BufferedSound src)
+    {
+       return createCompatibleDestinationSound(
+                 src, sampleRate,
+                 getResampler(src.getSampleRate())
+                    .getOutputLength(src.getNumberOfSamples()));
+    }
+
+    /**
+     * Get the sampling rate of the result
+     *
+     * @return   The sampling rate (in Hz)
+     */
+    public float getSampleRate()
+    {
+       return sampleRate;
+    }
+
+    /**
+     * Get the Resampler for a source sampling rate
+     *
+     * @param rate   The sampling rate of the source (in Hz)
+     * @return       The Resampler
+     */
+    private synchronized Resampler getResampler(float rate)
+    {
+       if ((resampler == null) || (sourceRate != rate))
+       {
+          resampler  = new Resampler((double)sampleRate / (double)rate);
+          sourceRate = rate;
+       }
+
+       return resampler;
+    }
+
+    /**
+     * Convert a BufferedSound.  If the destination is null, a
+     * BufferedSound with the target sampling rate and the
+     * corresponding length is created and returned.  Since the length
+     * changes, the operation can't be executed in place.
+     *
+     * @param src   The operand (i.e., sound to operate on)
+     * @param dest  An empty sound to hold the result (or null)
+     * @throws IllegalArgumentException if dest doesn't have the
+     *         sampling rate and length of the result
+     */
+    public synchronized BufferedSound filter(BufferedSound src, 
+                                             BufferedSound dest)
+                                             throws IllegalArgumentException
+    {
+       Resampler      r;
+
+       // Make sure the right Resampler is used by applyFilter()
+       r = getResampler(src.getSampleRate());
+
+       if (dest != null)
+          checkDestination(src, dest, sampleRate,
+                           r.getOutputLength(src.getNumberOfSamples()));
+
+       return super.filter(src, dest);
+    }
+
+    /**
+     * Resample the signal
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     */
+    public void applyFilter(double[] source, double[] destination)
+    {
+       applyFilter(source, destination, 0, destination.length);
+    }
+
+    /**
+     * Resample the signal [for a range of samples in the destination]
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       resampler.resample(source, destination, from, to);
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * @return   STATELESS
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.STATELESS;
+    }
+}
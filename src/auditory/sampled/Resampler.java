@@ -0,0 +1,188 @@
+package auditory.sampled;
+
+/**
+ * A band-limited, polyphase resampler.
+ *
+ * Each output sample is calculated by applying a windowed-sinc
+ * low-pass filter to the input samples around its (fractional)
+ * position in the input.  The filter coefficients for PHASES evenly
+ * spaced fractional positions are calculated once (when the Resampler
+ * is constructed) and the coefficients for positions in between are
+ * linearly interpolated.  When downsampling, the cutoff frequency of
+ * the filter is lowered to prevent aliasing.
+ *
+ * A Resampler is never modified after it is constructed.  Hence,
+ * it can be used by multiple threads at the same time.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class Resampler
+{
+    private double         ratio;
+    private double[][]     table;
+    private int            halfTaps;
+
+    /**
+     * The default number of input samples on each side of the
+     * output sample that are used
+     */
+    public static final int      DEFAULT_HALF_TAPS = 16;
+
+    /**
+     * The number of fractional positions in the filter table
+     */
+    public static final int      PHASES            = 256;
+
+    private static final double  ROLLOFF           = 0.95;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param ratio   The number of output samples per input sample
+     */
+    public Resampler(double ratio)
+    {
+       this(ratio, DEFAULT_HALF_TAPS);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param ratio     The number of output samples per input sample
+     * @param halfTaps  The number of input samples on each side
+     * @throws IllegalArgumentException if the ratio is not positive
+     */
+    public Resampler(double ratio, int halfTaps)
+                     throws IllegalArgumentException
+    {
+       double    cutoff, d, sum, w, x;
+       int       taps;
+
+       if (!(ratio > 0.0))
+          throw(new IllegalArgumentException("Ratio must be positive"));
+
+       this.ratio    = ratio;
+       this.halfTaps = Math.max(1, halfTaps);
+
+       // Lower the cutoff when downsampling
+       cutoff = Math.min(1.0, ratio) * ROLLOFF;
+       taps   = 2 * this.halfTaps;
+
+       // Row p holds the coefficients for a fractional position
+       // of p/PHASES (so there is one more row than there are phases)
+       table = new double[PHASES+1][taps];
+       for (int p=0; p<=PHASES; p++)
+       {
+          sum = 0.0;
+          for (int j=0; j<taps; j++)
+          {
+             // The distance from the output position to the input sample
+             d = (j - this.halfTaps + 1) - (double)p/PHASES;
+
+             // Windowed sinc (with a Blackman window)
+             x = Math.PI * cutoff * d;
+             if (x == 0.0) table[p][j] = cutoff;
+             else          table[p][j] = cutoff * Math.sin(x)/x;
+
+             w = 0.42 + 0.5  * Math.cos(Math.PI * d / this.halfTaps)
+                      + 0.08 * Math.cos(2.0 * Math.PI * d / this.halfTaps);
+             if (Math.abs(d) >= this.halfTaps) w = 0.0;
+
+             table[p][j] *= w;
+             sum         += table[p][j];
+          }
+
+          // Normalize so that the gain (at DC) is exactly 1
+          for (int j=0; j<taps; j++)
+          {
+             table[p][j] /= sum;
+          }
+       }
+    }
+
+    /**
+     * Get the number of output samples for a given number
+     * of input samples
+     *
+     * @param inputLength   The number of input samples
+     * @return              The number of output samples
+     */
+    public int getOutputLength(int inputLength)
+    {
+       return (int)Math.round(inputLength * ratio);
+    }
+
+    /**
+     * Get the ratio of output samples to input samples
+     *
+     * @return   The ratio
+     */
+    public double getRatio()
+    {
+       return ratio;
+    }
+
+    /**
+     * Resample a complete signal
+     *
+     * @param source       The input signal
+     * @param destination  The output signal
+     */
+    public void resample(double[] source, double[] destination)
+    {
+       resample(source, destination, 0, destination.length);
+    }
+
+    /**
+     * Calculate a range of the output signal
+     *
+     * @param source       The input signal
+     * @param destination  The output signal
+     * @param from         The index of the first output sample (inclusive)
+     * @param to           The index of the last output sample (exclusive)
+     */
+    public void resample(double[] source, double[] destination,
+                         int from, int to)
+    {
+       double     a, frac, phase, sum, t;
+       double[]   h0, h1;
+       int        first, i, length, p, taps;
+
+       length = source.length;
+       taps   = 2*halfTaps;
+
+       for (int n=from; n<to; n++)
+       {
+          // The (fractional) position of this sample in the input
+          t     = n / ratio;
+          i     = (int)Math.floor(t);
+          frac  = t - i;
+
+          // The rows of the table on either side of the position
+          phase = frac * PHASES;
+          p     = (int)phase;
+          a     = phase - p;
+          h0    = table[p];
+          h1    = table[Math.min(p+1, PHASES)];
+
+          first = i - halfTaps + 1;
+          sum   = 0.0;
+          if ((first >= 0) && (first+taps <= length))
+          {
+             for (int j=0; j<taps; j++)
+             {
+                sum += source[first+j] * (h0[j] + a*(h1[j]-h0[j]));
+             }
+          }
+          else // Near the ends, samples outside the signal are 0
+          {
+             for (int j=Math.max(0, -first); j<Math.min(taps, length-first); j++)
+             {
+                sum += source[first+j] * (h0[j] + a*(h1[j]-h0[j]));
+             }
+          }
+          destination[n] = sum;
+       }
+    }
+}
@@ -17,13 +17,62 @@ public class ReverseOp extends    AbstractBufferedSoundUnaryOp
      */
     public void applyFilter(double[] source, double[] destination)
     {
+       applyFilter(source, destination, 0, source.length);
+    }
+
+    /**
+     * Reverse the signal [for a range of samples]
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       double    temp;
        int       length;
        
        length    = source.length;
        
-       for (int i=0; i<length; i++)
+       if (source == destination) // In place
        {
-          destination[i]  = source[length-1-i];
+          // Swap each sample in the first half with its mirror image
+          // (so that each pair is only swapped once)
+          for (int i=from; i<Math.min(to, length/2); i++)
+          {
+             temp                   = source[i];
+             destination[i]         = source[length-1-i];
+             destination[length-1-i] = temp;
+          }
        }
+       else
+       {
+          for (int i=from; i<to; i++)
+          {
+             destination[i]  = source[length-1-i];
+          }
+       }
+    }
+
+    /**
+     * Can this operation be executed in place?
+     *
+     * @return   true (samples are swapped in pairs)
+     */
+    public boolean supportsInPlace()
+    {
+       return true;
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * @return   STATELESS
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.STATELESS;
     }
 }
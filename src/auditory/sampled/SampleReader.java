@@ -0,0 +1,341 @@
+package auditory.sampled;
+
+import java.io.*;
+import java.nio.*;
+import javax.sound.sampled.*;
+
+/**
+ * A pull-based source of samples that decodes an AudioInputStream
+ * one block at a time.
+ *
+ * Unlike a BufferedSound, a SampleReader never holds the complete
+ * content in memory.  Instead, it reads fixed-size blocks of raw
+ * bytes into a buffer that is re-used for every block and converts
+ * them directly into the (caller-supplied) channel arrays.  The
+ * buffer is viewed (without copying) through a ByteBuffer/ShortBuffer
+ * with the byte order of the stream, so each sample is read with
+ * one get() and written to its channel in the same pass.  Hence,
+ * it can be used both to build a BufferedSound without intermediate
+ * copies and to present long content while it is being decoded.
+ *
+ * Like a BufferedSound, a SampleReader can only be used by one
+ * thread at a time.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class SampleReader
+{
+    private AudioFormat          format;
+    private AudioInputStream     stream;
+    private boolean              bigEndian, signed;
+    private byte[]               block;
+    private ByteBuffer           bytes;
+    private int                  blockFrames, bytesPerSample,
+                                 channels, frameSize;
+    private ShortBuffer          shorts;
+
+    public static final int      DEFAULT_BLOCK_FRAMES = 4096;
+
+    private static final double  MAX_AMPLITUDE        =  32767.0;
+    private static final double  MIN_AMPLITUDE        = -32767.0;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param inStream   The stream to read from
+     */
+    public SampleReader(AudioInputStream inStream)
+                        throws UnsupportedAudioFileException
+    {
+       this(inStream, DEFAULT_BLOCK_FRAMES);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param inStream     The stream to read from
+     * @param blockFrames  The number of frames to decode per block
+     */
+    public SampleReader(AudioInputStream inStream, int blockFrames)
+                        throws UnsupportedAudioFileException
+    {
+       AudioFormat        inFormat, pcmFormat;
+       AudioFormat.Encoding encoding;
+
+       inFormat = inStream.getFormat();
+       encoding = inFormat.getEncoding();
+
+       // Convert everything that isn't 8-bit or 16-bit PCM
+       // (e.g., ULAW and ALAW) to 16-bit PCM
+       if ((!encoding.equals(AudioFormat.Encoding.PCM_SIGNED)   &&
+            !encoding.equals(AudioFormat.Encoding.PCM_UNSIGNED)   ) ||
+           ((inFormat.getSampleSizeInBits() != 8)  &&
+            (inFormat.getSampleSizeInBits() != 16)                  ))
+       {
+          pcmFormat = new AudioFormat(
+                            AudioFormat.Encoding.PCM_SIGNED,
+                            inFormat.getSampleRate(),
+                            16,
+                            inFormat.getChannels(),
+                            inFormat.getChannels()*2,
+                            inFormat.getSampleRate(),
+                            true);
+
+          try
+          {
+             stream = AudioSystem.getAudioInputStream(pcmFormat, inStream);
+          }
+          catch (IllegalArgumentException iae)
+          {
+             throw(new UnsupportedAudioFileException(iae.getMessage()));
+          }
+       }
+       else // It is PCM
+       {
+          stream = inStream;
+       }
+
+       format         = stream.getFormat();
+       bigEndian      = format.isBigEndian();
+       signed         = format.getEncoding().equals(
+                                      AudioFormat.Encoding.PCM_SIGNED);
+       channels       = format.getChannels();
+       bytesPerSample = format.getSampleSizeInBits()/8;
+       frameSize      = channels * bytesPerSample;
+
+       this.blockFrames = Math.max(1, blockFrames);
+       block            = new byte[this.blockFrames * frameSize];
+
+       // Views of the block (which share its content)
+       bytes  = ByteBuffer.wrap(block);
+       if (bigEndian) bytes.order(ByteOrder.BIG_ENDIAN);
+       else           bytes.order(ByteOrder.LITTLE_ENDIAN);
+       shorts = bytes.asShortBuffer();
+    }
+
+    /**
+     * Close the underlying stream
+     */
+    public void close() throws IOException
+    {
+       stream.close();
+    }
+
+    /**
+     * Convert one block of raw (interleaved) bytes into the
+     * individual channels
+     *
+     * @param frames       The number of frames in the block
+     * @param destination  The channels to write to
+     * @param offset       The index of the first sample to write
+     */
+    private void decode(int frames, double[][] destination, int offset)
+    {
+       double[]   left, right;
+
+       if (bytesPerSample == 1)
+       {
+          decodeBytes(frames, destination, offset);
+       }
+       else if (channels == 1)
+       {
+          left = destination[0];
+          for (int i=0; i<frames; i++)
+          {
+             left[offset+i] = shorts.get(i);
+          }
+       }
+       else if (channels == 2)
+       {
+          left  = destination[0];
+          right = destination[1];
+          for (int i=0; i<frames; i++)
+          {
+             left[offset+i]  = shorts.get(2*i);
+             right[offset+i] = shorts.get(2*i+1);
+          }
+       }
+       else
+       {
+          for (int c=0; c<channels; c++)
+          {
+             left = destination[c];
+             for (int i=0, s=c; i<frames; i++, s+=channels)
+             {
+                left[offset+i] = shorts.get(s);
+             }
+          }
+       }
+    }
+
+    /**
+     * Convert one block of raw (interleaved) 8-bit samples into
+     * the individual channels
+     *
+     * @param frames       The number of frames in the block
+     * @param destination  The channels to write to
+     * @param offset       The index of the first sample to write
+     */
+    private void decodeBytes(int frames, double[][] destination, int offset)
+    {
+       double[]   signal;
+
+       for (int c=0; c<channels; c++)
+       {
+          signal = destination[c];
+          if (signed)
+          {
+             for (int i=0, s=c; i<frames; i++, s+=channels)
+             {
+                signal[offset+i] = bytes.get(s);
+             }
+          }
+          else
+          {
+             for (int i=0, s=c; i<frames; i++, s+=channels)
+             {
+                signal[offset+i] = (bytes.get(s) & 0xff) - 128;
+             }
+          }
+       }
+    }
+
+    /**
+     * Get the (PCM) AudioFormat of the samples being decoded
+     *
+     * @return  The AudioFormat
+     */
+    public AudioFormat getAudioFormat()
+    {
+       return format;
+    }
+
+    /**
+     * Get the number of frames decoded per block
+     *
+     * @return  The number of frames
+     */
+    public int getBlockFrames()
+    {
+       return blockFrames;
+    }
+
+    /**
+     * Get the total number of frames in the stream (if known)
+     *
+     * @return  The number of frames or AudioSystem.NOT_SPECIFIED
+     */
+    public long getFrameLength()
+    {
+       return stream.getFrameLength();
+    }
+
+    /**
+     * Get the number of channels
+     *
+     * @return  The number of channels
+     */
+    public int getNumberOfChannels()
+    {
+       return channels;
+    }
+
+    /**
+     * Get the sampling rate
+     *
+     * @return  The sampling rate (in Hz)
+     */
+    public float getSampleRate()
+    {
+       return format.getSampleRate();
+    }
+
+    /**
+     * Read up to the given number of samples (per channel) into the
+     * given channels.  This method blocks until the requested
+     * number of samples is available or the end of the stream
+     * is reached.
+     *
+     * @param destination  One array per channel
+     * @param offset       The index of the first sample to write
+     * @param frames       The maximum number of samples (per channel)
+     * @return             The number of samples read or -1 at the end
+     */
+    public int read(double[][] destination, int offset, int frames)
+               throws IOException
+    {
+       int      n, total;
+
+       total = 0;
+       while (total < frames)
+       {
+          // AudioInputStream objects always read an integral
+          // number of frames
+          n = stream.read(block, 0,
+                          Math.min(frames-total, blockFrames)*frameSize);
+          if (n <= 0) break;
+
+          n = n / frameSize;
+          decode(n, destination, offset+total);
+          total += n;
+       }
+
+       if ((total == 0) && (frames > 0)) total = -1;
+
+       return total;
+    }
+
+    /**
+     * Present the remaining content on the given SourceDataLine,
+     * decoding it block-by-block while it plays.  This method
+     * blocks until the content has been presented.
+     *
+     * Note: The line is opened using signed PCM with a 16bit sample
+     *       size and big-endian byte order (the format used by
+     *       BufferedSound objects)
+     *
+     * @param line   The SourceDataLine to use
+     */
+    public void render(SourceDataLine line)
+                throws IOException, LineUnavailableException
+    {
+       AudioFormat    outFormat;
+       byte[]         rawBytes;
+       double[][]     signals;
+       int            b, n;
+       short          scaled;
+       double         sample;
+
+       outFormat = new AudioFormat(format.getSampleRate(), 16,
+                                   channels, true, true);
+       signals   = new double[channels][blockFrames];
+       rawBytes  = new byte[blockFrames * channels * 2];
+
+       line.open(outFormat, rawBytes.length * 2);
+       line.start();
+
+       while ((n = read(signals, 0, blockFrames)) > 0)
+       {
+          b = 0;
+          for (int i=0; i<n; i++)
+          {
+             for (int c=0; c<channels; c++)
+             {
+                sample = signals[c][i];
+                if      (sample > MAX_AMPLITUDE) scaled=(short)MAX_AMPLITUDE;
+                else if (sample < MIN_AMPLITUDE) scaled=(short)MIN_AMPLITUDE;
+                else                             scaled=(short)sample;
+
+                rawBytes[b]   = (byte)(scaled >> 8);
+                rawBytes[b+1] = (byte)(scaled & 0xff);
+                b += 2;
+             }
+          }
+          line.write(rawBytes, 0, b);
+       }
+
+       line.drain();
+       line.close();
+    }
+}
@@ -0,0 +1,319 @@
+package auditory.sampled;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.function.*;
+
+import event.MetronomeListener;
+import io.ResourceFinder;
+
+/**
+ * A central "bus" that objects post sound events to (rather than
+ * playing sounds themselves).
+ *
+ * Events are collected until the next Metronome tick.  Then, all of
+ * the events for the same sound are merged into one voice (with a
+ * gain that increases with the number of events), sounds that were
+ * played too recently (i.e., within their cooldown) are dropped, and
+ * the remaining sounds are played (the most-posted ones first) until
+ * the number of sounds that are playing reaches the voice budget.
+ * Hence, a volley of identical events in one tick costs one voice.
+ *
+ * Sounds are started on the BoomBox executor, so the thread that
+ * handles the tick never loads or opens anything.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class SoundEventBus implements MetronomeListener
+{
+    private ArrayList<Event>          batch;
+    private AtomicInteger             voices;
+    private HashMap<String, Event>    events;
+    private volatile float            maxGain;
+    private volatile int              cooldown, maxVoices;
+    private SoundFactory              factory;
+
+    private static SoundEventBus      instance;
+
+    /**
+     * The default minimum time between two plays of the same sound
+     */
+    public static final int     DEFAULT_COOLDOWN   = 50;
+
+    /**
+     * The default maximum (merged) gain
+     */
+    public static final float   DEFAULT_MAX_GAIN   = 2.0f;
+
+    /**
+     * The default maximum number of sounds that can play at once
+     */
+    public static final int     DEFAULT_MAX_VOICES = 8;
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param factory   The SoundFactory used to play sounds
+     */
+    public SoundEventBus(SoundFactory factory)
+    {
+       this.factory = factory;
+       batch        = new ArrayList<Event>();
+       events       = new HashMap<String, Event>();
+       voices       = new AtomicInteger(0);
+       cooldown     = DEFAULT_COOLDOWN;
+       maxGain      = DEFAULT_MAX_GAIN;
+       maxVoices    = DEFAULT_MAX_VOICES;
+    }
+
+    /**
+     * Create the shared SoundEventBus (replacing any existing one)
+     *
+     * @param finder   The ResourceFinder used to find sounds
+     * @return         The shared SoundEventBus
+     */
+    public static synchronized SoundEventBus createInstance(
+                                                ResourceFinder finder)
+    {
+       instance = new SoundEventBus(new SoundFactory(finder));
+
+       return instance;
+    }
+
+    /**
+     * Get the shared SoundEventBus (creating one that searches
+     * "locally" if none has been created)
+     *
+     * @return   The shared SoundEventBus
+     */
+    public static synchronized SoundEventBus getInstance()
+    {
+       if (instance == null)
+          instance = new SoundEventBus(
+                        new SoundFactory(ResourceFinder.createInstance()));
+
+       return instance;
+    }
+
+    /**
+     * Get the number of sounds that are currently playing
+     *
+     * @return   The number of voices
+     */
+    public int getActiveVoices()
+    {
+       return voices.get();
+    }
+
+    /**
+     * Get the Event for a sound (creating it if necessary)
+     *
+     * @param name   The name of the sound
+     * @return       The Event
+     */
+    private Event getEvent(String name)
+    {
+       Event     event;
+
+       event = events.get(name);
+       if (event == null)
+       {
+          event = new Event(name);
+          events.put(name, event);
+       }
+
+       return event;
+    }
+
+    /**
+     * Dispatch the events that were posted since the last tick
+     * (required by MetronomeListener)
+     *
+     * @param millis   The number of milliseconds since the Metronome started
+     */
+    public void handleTick(int millis)
+    {
+       Event     event;
+       float     gain;
+       int       count, limit;
+
+       // Take the pending events (so that posting is never
+       // blocked while sounds are being dispatched)
+       synchronized(this)
+       {
+          batch.clear();
+          for (Event e : events.values())
+          {
+             if (e.count > 0)
+             {
+                e.batchCount = e.count;
+                e.batchGain  = e.gain;
+                e.count      = 0;
+                e.gain       = 0.0f;
+                batch.add(e);
+             }
+          }
+       }
+
+       // Give priority to the sounds that were posted most often
+       if (batch.size() > 1) Collections.sort(batch);
+
+       for (int i=0; i<batch.size(); i++)
+       {
+          event = batch.get(i);
+          count = event.batchCount;
+          limit = event.cooldown;
+          if (limit < 0) limit = cooldown;
+
+          if (event.played && (millis - event.lastPlayed < limit)) continue;
+
+          if (voices.get() >= maxVoices) break;
+
+          // n incoherent copies of a sound are about sqrt(n) times as
+          // loud as one (so use the average gain times sqrt(n))
+          gain = (float)(event.batchGain / Math.sqrt(count));
+          gain = Math.min(maxGain, gain);
+
+          event.played     = true;
+          event.lastPlayed = millis;
+          dispatch(event.name, gain);
+       }
+       batch.clear();
+    }
+
+    /**
+     * Play a sound on the BoomBox executor
+     *
+     * @param name   The name of the sound
+     * @param gain   The (linear) gain
+     */
+    private void dispatch(final String name, final float gain)
+    {
+       voices.incrementAndGet();
+       BoomBox.getExecutor().execute(new Runnable()
+       {
+          public void run()
+          {
+             try
+             {
+                factory.playAudio(name, gain).whenComplete(
+                   new BiConsumer<Void, Throwable>()
+                   {
+                      public void accept(Void v, Throwable t)
+                      {
+                         voices.decrementAndGet();
+                      }
+                   });
+             }
+             catch (RuntimeException re)
+             {
+                // The sound could not be played (e.g., there is no line)
+                voices.decrementAndGet();
+             }
+          }
+       });
+    }
+
+    /**
+     * Post an event for a sound (at its recorded amplitude)
+     *
+     * @param name   The name of the sound (e.g., "lazor.wav")
+     */
+    public void post(String name)
+    {
+       post(name, 1.0f);
+    }
+
+    /**
+     * Post an event for a sound
+     *
+     * @param name   The name of the sound (e.g., "lazor.wav")
+     * @param gain   The (linear) gain of this event
+     */
+    public synchronized void post(String name, float gain)
+    {
+       Event     event;
+
+       event = getEvent(name);
+       event.count++;
+       event.gain += gain;
+    }
+
+    /**
+     * Set the default minimum time between two plays of the same
+     * sound (for sounds that don't have their own cooldown)
+     *
+     * @param millis   The cooldown (in milliseconds)
+     */
+    public void setCooldown(int millis)
+    {
+       cooldown = millis;
+    }
+
+    /**
+     * Set the minimum time between two plays of a particular sound
+     *
+     * @param name     The name of the sound
+     * @param millis   The cooldown (in milliseconds)
+     */
+    public synchronized void setCooldown(String name, int millis)
+    {
+       getEvent(name).cooldown = millis;
+    }
+
+    /**
+     * Set the maximum (merged) gain
+     *
+     * @param maxGain   The maximum (linear) gain
+     */
+    public void setMaxGain(float maxGain)
+    {
+       this.maxGain = maxGain;
+    }
+
+    /**
+     * Set the maximum number of sounds that can play at once
+     *
+     * @param maxVoices   The voice budget
+     */
+    public void setMaxVoices(int maxVoices)
+    {
+       this.maxVoices = maxVoices;
+    }
+
+    /**
+     * The events for one sound (which are re-used from tick to tick)
+     */
+    private static class Event implements Comparable<Event>
+    {
+        private boolean     played;
+        private float       batchGain, gain;
+        private int         batchCount, cooldown, count, lastPlayed;
+        private String      name;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param name   The name of the sound
+         */
+        public Event(String name)
+        {
+           this.name     = name;
+           this.cooldown = -1; // Use the default
+        }
+
+        /**
+         * Compare this Event to another (so that Events that were
+         * posted more often come first)
+         *
+         * @param other   The other Event
+         * @return        A negative number if this Event comes first
+         */
+        public int compareTo(Event other)
+        {
+           return other.batchCount - batchCount;
+        }
+    }
+}
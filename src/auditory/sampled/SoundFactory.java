@@ -1,5 +1,7 @@
 package auditory.sampled;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.sound.sampled.LineUnavailableException;
 import io.ResourceFinder;
 
@@ -12,9 +14,8 @@ import io.ResourceFinder;
  */
 public class SoundFactory {
 	
-	private BoomBox					boombox;
-	private BufferedSound			sound;
-	private BufferedSoundFactory	bsf;
+	private BufferedSoundFactory					bsf;
+	private ConcurrentHashMap<String, BufferedSound>	sounds;
 	
 	/**
 	 * The explicit value constructor that accepts a ResoouceFinder
@@ -22,6 +23,33 @@ public class SoundFactory {
 	 */
 	public SoundFactory(ResourceFinder finder) {
 		bsf = new BufferedSoundFactory(finder);
+		sounds = new ConcurrentHashMap<String, BufferedSound>();
+	}
+	
+	/**
+	 * Returns the BufferedSound with the given name. Each sound is only
+	 * loaded the first time it is needed (a BufferedSound is not changed
+	 * by rendering it, so the same one can be played many times).
+	 * 
+	 * @param name	The name of the audio file
+	 * @return		The BufferedSound
+	 */
+	private BufferedSound getSound(String name) {
+		BufferedSound sound;
+		
+		sound = sounds.get(name);
+		if (sound == null) {
+			try {
+				sound = bsf.createBufferedSound("rsc/" + name);
+			} catch (Exception e) {
+		        sound = bsf.createBufferedSound(200,       	// frequency
+	                     						250000,     // length
+	                     						4000.0f,    // sampling rate
+	                     						1000.0f);   // amplitude
+			}
+			sounds.putIfAbsent(name, sound);
+		}
+		return sound;
 	}
 	
 	/**
@@ -29,23 +57,32 @@ public class SoundFactory {
 	 * be in the format: nameOfAudio.audioExtension (audioClip.wav).
 	 * 
 	 * @param name	The name of the audio file to play
+	 * @return		A CompletableFuture that is completed when the audio stops
 	 */
-	public void playAudio(String name) {
-		try {
-			sound = bsf.createBufferedSound("rsc/" + name);
-		} catch (Exception e) {
-	        sound = bsf.createBufferedSound(200,       	// frequency
-                     						250000,     // length
-                     						4000.0f,    // sampling rate
-                     						1000.0f);   // amplitude
-		}
+	public CompletableFuture<Void> playAudio(String name) {
+		return playAudio(name, 1.0f);
+	}
+	
+	/**
+	 * Plays a specified audio clip from a given name at the given (linear)
+	 * gain. This method can be called by multiple threads at the same time.
+	 * 
+	 * @param name	The name of the audio file to play
+	 * @param gain	The gain (1.0 for the recorded amplitude)
+	 * @return		A CompletableFuture that is completed when the audio stops
+	 */
+	public CompletableFuture<Void> playAudio(String name, float gain) {
+		BoomBox boombox;
+		CompletableFuture<Void> future;
 		
-		boombox = new BoomBox(sound);
+		boombox = new BoomBox(getSound(name));
 		try {
-			boombox.start();
+			future = boombox.play(gain);
 		} catch (LineUnavailableException e) {
-			// Ignore
+			future = new CompletableFuture<Void>();
+			future.completeExceptionally(e);
 		}
+		return future;
 	}
 
 }
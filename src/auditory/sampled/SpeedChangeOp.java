@@ -4,13 +4,19 @@ package auditory.sampled;
  * A BufferedSoundUnaryOp that changes the speed at which
  * a signal is presented
  *
+ * The result has the same sampling rate as the source (so that it
+ * can be mixed with the source and rendered without any conversion)
+ * but is 1/multiplier times as long.  It is calculated using a
+ * band-limited (polyphase) Resampler.
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
  */
 public class SpeedChangeOp extends AbstractBufferedSoundUnaryOp
 {
-    private double        multiplier;    
+    private double        multiplier;
+    private Resampler     resampler;
 
     /**
      * Explicit Value Constructor
@@ -20,48 +26,75 @@ public class SpeedChangeOp extends AbstractBufferedSoundUnaryOp
     public SpeedChangeOp(double multiplier)
     {
        this.multiplier = multiplier;
+       resampler       = new Resampler(1.0/multiplier);
     }
 
     /**
-     * Creates a BufferedSound with a different sampling rate.
+     * Creates a BufferedSound with the same sampling rate and a
+     * different length.
      *
      * @param src    The source BufferedSound
      */
     public BufferedSound createCompatibleDestinationSound(BufferedSound src)
     {
-       BufferedSound        temp;
-       float                sampleRate;
-       int                  channels, length;
-       
-       channels   = src.getNumberOfChannels();       
-       length     = src.getNumberOfSamples();       
-       sampleRate = src.getSampleRate() * (float)multiplier;
-       
-       temp = new BufferedSound(sampleRate);
-
-       for (int i=0; i<channels; i++)
-       {
-          temp.addChannel(new double[length]);          
-       }
-
-       return temp;       
+       return createCompatibleDestinationSound(
+                 src, src.getSampleRate(),
+                 resampler.getOutputLength(src.getNumberOfSamples()));
     }
 
     /**
-     * Copy the signal
+     * Resample the signal
      *
      * @param source      The source signal
      * @param destination The resulting signal
      */
     public void applyFilter(double[] source, double[] destination)
     {
-       int       length;
-       
-       length    = source.length;
+       applyFilter(source, destination, 0, destination.length);
+    }
+
+    /**
+     * Resample the signal [for a range of samples in the destination]
+     *
+     * @param source      The source signal
+     * @param destination The resulting signal
+     * @param from        The index of the first sample (inclusive)
+     * @param to          The index of the last sample (exclusive)
+     */
+    public void applyFilter(double[] source, double[] destination,
+                            int from, int to)
+    {
+       resampler.resample(source, destination, from, to);
+    }
 
-       for (int i=0; i<length; i++)
-       {
-          destination[i]  = source[i];
-       }
+    /**
+     * Change the speed of a BufferedSound.  If the destination is null,
+     * a BufferedSound with the same sampling rate and the corresponding
+     * length is created and returned.  Since the length changes, the
+     * operation can't be executed in place.
+     *
+     * @param src   The operand (i.e., sound to operate on)
+     * @param dest  An empty sound to hold the result (or null)
+     * @throws IllegalArgumentException if dest doesn't have the
+     *         sampling rate and length of the result
+     */
+    public BufferedSound filter(BufferedSound src, BufferedSound dest)
+                                throws IllegalArgumentException
+    {
+       if (dest != null) 
+          checkDestination(src, dest, src.getSampleRate(),
+                           resampler.getOutputLength(src.getNumberOfSamples()));
+
+       return super.filter(src, dest);
+    }
+
+    /**
+     * Get the StateContract for this operation
+     *
+     * @return   STATELESS
+     */
+    public StateContract getStateContract()
+    {
+       return StateContract.STATELESS;
     }
 }
@@ -0,0 +1,35 @@
+package auditory.sampled;
+
+/**
+ * The kinds of state that an operation on BufferedSound objects
+ * can have.  The state contract of an operation determines how its
+ * work can be divided when it is executed in parallel.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public enum StateContract
+{
+    /**
+     * Each destination sample depends only on the source signals
+     * (and not on other destination samples or on mutable state).
+     * Channels can be processed in parallel and each channel can be
+     * split into ranges that are processed in parallel.
+     */
+    STATELESS,
+
+    /**
+     * The operation keeps state (e.g., a history) while it processes
+     * a channel, but the channels are independent.  Channels can be
+     * processed in parallel but each channel must be processed in
+     * a single pass.
+     */
+    CHANNEL_STATE,
+
+    /**
+     * The operation keeps state that is shared by all of the channels
+     * (e.g., a random number generator).  Everything must be processed
+     * sequentially in a single thread.
+     */
+    SHARED_STATE
+}
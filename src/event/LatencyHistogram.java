@@ -0,0 +1,210 @@
+package event;
+
+
+/**
+ * A LatencyHistogram counts durations (in nanoseconds) using
+ * buckets whose width grows with the duration (in the style of an
+ * HDR histogram).  Each power of two is divided into the same number
+ * of buckets, so every recorded value is kept to within about 3% of
+ * its actual value, whether it is a few microseconds or a few
+ * seconds, and recording is constant-time.
+ *
+ * Durations longer than about 36 minutes are counted as if they
+ * were that long.
+ *
+ * Note: This class is not synchronized.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class LatencyHistogram
+{
+    private long                 count, maximum, total;
+    private long[]               counts;
+
+    private static final int     SUB_BITS  = 5;
+    private static final int     SUB_COUNT = 1 << SUB_BITS;
+    private static final int     HALF      = SUB_COUNT / 2;
+    private static final int     MAX_BITS  = 41;
+    private static final long    MAX_VALUE = (1L << MAX_BITS) - 1;
+
+    /**
+     * Default Constructor
+     */
+    public LatencyHistogram()
+    {
+       counts = new long[indexOf(MAX_VALUE) + 1];
+    }
+
+    /**
+     * Add all of the durations in another LatencyHistogram
+     * to this one
+     *
+     * @param other   The other LatencyHistogram
+     */
+    public void add(LatencyHistogram other)
+    {
+       for (int i=0; i<counts.length; i++) counts[i] += other.counts[i];
+
+       count  += other.count;
+       total  += other.total;
+       maximum = Math.max(maximum, other.maximum);
+    }
+
+    /**
+     * Create a copy of this LatencyHistogram
+     *
+     * @return   The copy
+     */
+    public LatencyHistogram copy()
+    {
+       LatencyHistogram    result;
+
+       result = new LatencyHistogram();
+       result.add(this);
+
+       return result;
+    }
+
+    /**
+     * Get the number of durations that have been recorded
+     *
+     * @return   The number of durations
+     */
+    public long getCount()
+    {
+       return count;
+    }
+
+    /**
+     * Get the longest duration that has been recorded
+     *
+     * @return   The duration (in milliseconds)
+     */
+    public double getMaximum()
+    {
+       return maximum / 1000000.0;
+    }
+
+    /**
+     * Get the mean of the durations that have been recorded
+     *
+     * @return   The mean (in milliseconds) or 0 if there are none
+     */
+    public double getMean()
+    {
+       if (count == 0) return 0.0;
+
+       return total / (double)count / 1000000.0;
+    }
+
+    /**
+     * Get the duration that a given percentage of the recorded
+     * durations are no longer than
+     *
+     * @param percentile   The percentage (in [0, 100])
+     * @return             The duration (in milliseconds) or 0 if
+     *                     there are none
+     */
+    public double getValueAtPercentile(double percentile)
+    {
+       long      cumulative, needed;
+
+       if (count == 0) return 0.0;
+
+       needed = (long)Math.ceil(Math.max(0.0, Math.min(100.0, percentile))
+                                / 100.0 * count);
+       needed = Math.max(1, needed);
+
+       cumulative = 0;
+       for (int i=0; i<counts.length; i++)
+       {
+          cumulative += counts[i];
+          if (cumulative >= needed)
+             return Math.min(highestValueOf(i), maximum) / 1000000.0;
+       }
+
+       return maximum / 1000000.0;
+    }
+
+    /**
+     * Get the largest value that is counted in a bucket
+     *
+     * @param index   The index of the bucket
+     * @return        The value (in nanoseconds)
+     */
+    private static long highestValueOf(int index)
+    {
+       int      magnitude;
+
+       if (index < SUB_COUNT) return index;
+
+       magnitude = (index - SUB_COUNT) / HALF + SUB_BITS;
+
+       return lowestValueOf(index) + (1L << (magnitude - SUB_BITS + 1)) - 1;
+    }
+
+    /**
+     * Get the index of the bucket that counts a value
+     *
+     * @param value   The value (in [0, MAX_VALUE] nanoseconds)
+     * @return        The index
+     */
+    private static int indexOf(long value)
+    {
+       int      magnitude;
+
+       if (value < SUB_COUNT) return (int)value;
+
+       // Each power of two (above the first) has HALF buckets
+       magnitude = 63 - Long.numberOfLeadingZeros(value);
+
+       return SUB_COUNT + (magnitude - SUB_BITS) * HALF
+                        + (int)(value >>> (magnitude - SUB_BITS + 1)) - HALF;
+    }
+
+    /**
+     * Get the smallest value that is counted in a bucket
+     *
+     * @param index   The index of the bucket
+     * @return        The value (in nanoseconds)
+     */
+    private static long lowestValueOf(int index)
+    {
+       int      magnitude, sub;
+
+       if (index < SUB_COUNT) return index;
+
+       magnitude = (index - SUB_COUNT) / HALF + SUB_BITS;
+       sub       = (index - SUB_COUNT) % HALF + HALF;
+
+       return ((long)sub) << (magnitude - SUB_BITS + 1);
+    }
+
+    /**
+     * Record a duration
+     *
+     * @param nanos   The duration (in nanoseconds)
+     */
+    public void record(long nanos)
+    {
+       nanos = Math.max(0, Math.min(MAX_VALUE, nanos));
+
+       counts[indexOf(nanos)]++;
+       count++;
+       total  += nanos;
+       if (nanos > maximum) maximum = nanos;
+    }
+
+    /**
+     * Remove all of the recorded durations
+     */
+    public void reset()
+    {
+       for (int i=0; i<counts.length; i++) counts[i] = 0;
+
+       count   = 0;
+       maximum = 0;
+       total   = 0;
+    }
+}
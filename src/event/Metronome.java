@@ -2,6 +2,8 @@ package event;
 
 import java.awt.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
 
 
 /**
@@ -28,9 +30,9 @@ import java.util.*;
  * </ol>
  *
  * <p>
- * The biggest disadvantage of this class is that it does not use thread
- * sharing.  Hence, an application should not use many different
- * Metronome objects.
+ * By default, each Metronome uses its own thread.  An application that
+ * uses many different Metronome objects should have them share the
+ * threads of a MetronomeScheduler (see setScheduler()).
  * </p>
  *
  * <p>
@@ -52,6 +54,42 @@ import java.util.*;
  * know this information must use System.currentTimeMillis() itself.
  * </p>
  *
+ * <p>
+ * A "precise" Metronome (see setPrecise()) uses deadlines measured
+ * with System.nanoTime() rather than sleep() and the system clock.
+ * It parks until shortly before each deadline (see setSpinMargin())
+ * and then yields until the deadline, so it is not limited by the
+ * granularity of the operating system's timer.  A precise "fixed
+ * rate" Metronome never drifts, since each deadline is exactly the
+ * delay after the previous one.
+ * </p>
+ *
+ * <p>
+ * In either case, a Metronome keeps track of the actual time between
+ * ticks (see getMeanInterval() and getJitter()).
+ * </p>
+ *
+ * <p>
+ * A tick may occur before the listeners have been informed of the
+ * previous one (e.g., when a listener takes longer than the delay).
+ * What happens then depends on the TickPolicy (see setTickPolicy()).
+ * By default, the pending dispatch is coalesced with the new one, so
+ * the GUI/event-dispatch thread never has more than one dispatch
+ * from a Metronome waiting in its queue.
+ * </p>
+ *
+ * <p>
+ * A Metronome can also record how long its ticks take to be handled
+ * (see setProfiler()).
+ * </p>
+ *
+ * <p>
+ * Listeners can also be added to a TickPhase, in which case they are
+ * notified one phase at a time (see TickPipeline).  Listeners that
+ * are not added to a phase are notified at the start of the SIMULATE
+ * phase.
+ * </p>
+ *
  * @author  Prof. David Bernstein, James Madison University
  * @see     "The Design and Implementation of Multimedia Software (c) 2011"
  * @version 1.0
@@ -59,13 +97,28 @@ import java.util.*;
 public class Metronome implements Runnable
 {
     private ArrayList<MetronomeListener>   listeners;
-    private volatile boolean               adjusting, keepRunning;
+    private volatile boolean               adjusting, keepRunning, precise;
+    private boolean                        pending;
+    private double                         intervalMean, intervalM2;
+    private int                            currentDelay, generation;
     protected volatile int                 delay, multiplier, time;
-    private volatile long                  lastTick;    
+    private long                           coalesced, deadline, dropped,
+                                           lastFire, maxLateness, ticks;
+    private volatile long                  lastTick, spinMargin;    
     private MetronomeListener[]            copy;
+    private MetronomeScheduler             scheduler;
     private MetronomeTickDispatcher        dispatcher;    
+    private ScheduledFuture<?>             scheduledTick;
+    private ScheduledTick                  deferredTick;
     protected Thread                       timerThread;
+    private volatile TickProfiler          profiler;
+    private TickPipeline                   pipeline;
+    private TickPolicy                     policy;
 
+    /**
+     * The default spin margin (in microseconds) of a precise Metronome
+     */
+    public static final int                DEFAULT_SPIN_MARGIN = 2000;
 
     /**
      * Default Constructor
@@ -76,7 +129,12 @@ public class Metronome implements Runnable
        adjusting      = false;       
        keepRunning    = false;
        multiplier     = 1;       
+       precise        = false;
+       pending        = false;
+       policy         = TickPolicy.COALESCE;
+       spinMargin     = DEFAULT_SPIN_MARGIN * 1000L;
        dispatcher     = new MetronomeTickDispatcher();       
+       pipeline       = new TickPipeline();
        listeners      = new ArrayList<MetronomeListener>();
        copy           = new MetronomeListener[0];       
 
@@ -119,6 +177,17 @@ public class Metronome implements Runnable
        copyListeners();
     }
 
+    /**
+     * Add a MetronomeListener to a phase of each tick
+     *
+     * @param phase   The TickPhase
+     * @param ml      The MetronomeListener to add
+     */
+    public void addListener(TickPhase phase, MetronomeListener ml)
+    {
+       pipeline.addListener(phase, ml);
+    }
+
     /**
      * Copy the collection of listeners
      *
@@ -135,6 +204,35 @@ public class Metronome implements Runnable
        listeners.toArray(copy);
     }
     
+    /**
+     * Handle a tick (i.e., advance the time, compensate for
+     * drift if necessary, and notify the listeners)
+     */
+    private void fire()
+    {
+       long      currentTick, drift, now;       
+
+       now = System.nanoTime();
+       if (precise) record(now, now - deadline);
+       else         record(now, 0);
+
+       time += currentDelay * multiplier;              
+             
+       if (precise) // The next deadline
+       {
+          if (adjusting) deadline = deadline + currentDelay * 1000000L;
+          else           deadline = now      + currentDelay * 1000000L;
+       }
+       else if (adjusting) // Need to compensate for drift
+       {
+          currentTick = System.currentTimeMillis();
+          drift = (currentTick - lastTick) - currentDelay;       
+          currentDelay = (int)Math.max(0, delay-drift);
+          lastTick = currentTick;                
+       }
+       notifyListeners();
+    }
+
     /**
      * Get the current delay
      */
@@ -144,6 +242,104 @@ public class Metronome implements Runnable
     }
     
 
+    /**
+     * Get the standard deviation of the time between ticks
+     *
+     * @return   The standard deviation (in milliseconds)
+     */
+    public synchronized double getJitter()
+    {
+       if (ticks < 3) return 0.0;
+
+       return Math.sqrt(intervalM2 / (ticks - 2)) / 1000000.0;
+    }
+
+    /**
+     * Get the largest amount of time by which a tick of a precise
+     * Metronome was late
+     *
+     * @return   The time (in milliseconds)
+     */
+    public synchronized double getMaximumLateness()
+    {
+       return maxLateness / 1000000.0;
+    }
+
+    /**
+     * Get the mean time between ticks
+     *
+     * @return   The mean (in milliseconds)
+     */
+    public synchronized double getMeanInterval()
+    {
+       return intervalMean / 1000000.0;
+    }
+
+    /**
+     * Get the number of ticks that were coalesced with a pending
+     * dispatch (since the statistics were last reset)
+     *
+     * @return   The number of ticks
+     */
+    public synchronized long getNumberOfCoalescedTicks()
+    {
+       return coalesced;
+    }
+
+    /**
+     * Get the number of ticks that were dropped because a dispatch
+     * was pending (since the statistics were last reset)
+     *
+     * @return   The number of ticks
+     */
+    public synchronized long getNumberOfDroppedTicks()
+    {
+       return dropped;
+    }
+
+    /**
+     * Get the TickPipeline that notifies the listeners that were
+     * added to a phase (e.g., to make a phase parallel)
+     *
+     * @return   The TickPipeline
+     */
+    public TickPipeline getPipeline()
+    {
+       return pipeline;
+    }
+
+    /**
+     * Get the TickProfiler that records how long the ticks of this
+     * Metronome take to be handled
+     *
+     * @return   The TickProfiler (or null if none is used)
+     */
+    public TickProfiler getProfiler()
+    {
+       return profiler;
+    }
+
+    /**
+     * Get the MetronomeScheduler this Metronome uses
+     *
+     * @return  The MetronomeScheduler (or null if it uses its own thread)
+     */
+    public MetronomeScheduler getScheduler()
+    {
+       return scheduler;
+    }
+
+    /**
+     * Get the spin margin (i.e., how long before a deadline a
+     * precise Metronome stops parking)
+     *
+     * @return   The margin (in microseconds)
+     */
+    public int getSpinMargin()
+    {
+       return (int)(spinMargin / 1000L);
+    }
+
     /**
      * Get the number of listeners
      */
@@ -152,6 +348,17 @@ public class Metronome implements Runnable
        return listeners.size();       
     }
     
+    /**
+     * Get the TickPolicy (i.e., what happens when a tick occurs
+     * while a dispatch is pending)
+     *
+     * @return   The TickPolicy
+     */
+    public TickPolicy getTickPolicy()
+    {
+       return policy;
+    }
+
     /**
      * Get the current amount of time elapsed (in milliseconds)
      * 
@@ -161,22 +368,104 @@ public class Metronome implements Runnable
     	return time;
     }
 
+    /**
+     * Is this Metronome precise?
+     *
+     * @return   true if it is precise; false otherwise
+     */
+    public boolean isPrecise()
+    {
+       return precise;
+    }
+
     /**
      * Notify observers in the GUI/event-dispatch thread.
      *
      * Note: Listeners are notified in the REVERSE order  
      * in which they are added.
+     *
+     * If the previous dispatch hasn't started yet, what happens
+     * depends on the TickPolicy.
      */
     protected synchronized void notifyListeners()
     {
+       long      tickedAt;
+
+       tickedAt = (profiler == null) ? 0 : System.nanoTime();
+
+       if (pending)
+       {
+          if (policy == TickPolicy.DROP)
+          {
+             dropped++;
+             return;
+          }
+          else if ((policy == TickPolicy.BLOCK) && 
+                   (Thread.currentThread() == timerThread))
+          {
+             try
+             {
+                while (pending && keepRunning) wait();
+             }
+             catch (InterruptedException ie)
+             {
+                // stop() was called (so let run() see it)
+                Thread.currentThread().interrupt();
+                return;
+             }
+             if (pending) return;
+          }
+          else // Coalesce (only the Metronome's own thread can block)
+          {
+             dispatcher.setup(copy, time, tickedAt);
+             coalesced++;
+             return;
+          }
+       }
+
        // Setup the state of the MetronomeTickDispatcher
-       dispatcher.setup(copy, time);
+       dispatcher.setup(copy, time, tickedAt);
+       pending = true;
        
        // Cause the run() method of the dispatcher to be
        // called in the GUI/event-dispatch thread
        EventQueue.invokeLater(dispatcher);
     }
 
+    /**
+     * Prepare for the first tick
+     */
+    private void prepare()
+    {
+       currentDelay = delay;       
+       deadline     = System.nanoTime() + currentDelay * 1000000L;
+       if (adjusting) lastTick = System.currentTimeMillis();
+       resetStatistics();
+    }
+
+    /**
+     * Record the time of a tick
+     *
+     * @param now        The time of the tick (in nanoseconds)
+     * @param lateness   The amount of time it was late (in nanoseconds)
+     */
+    private synchronized void record(long now, long lateness)
+    {
+       double      interval, delta;
+
+       ticks++;
+       if (ticks > 1)
+       {
+          // Welford's method
+          interval      = now - lastFire;
+          delta         = interval - intervalMean;
+          intervalMean += delta / (ticks - 1);
+          intervalM2   += delta * (interval - intervalMean);
+       }
+       lastFire    = now;
+       maxLateness = Math.max(maxLateness, lateness);
+    }
+
     /**
      * Remove a MetronomeListener
      *
@@ -188,6 +477,30 @@ public class Metronome implements Runnable
        copyListeners();
     }
 
+    /**
+     * Remove a MetronomeListener from a phase of each tick
+     *
+     * @param phase   The TickPhase
+     * @param ml      The MetronomeListener to remove
+     */
+    public void removeListener(TickPhase phase, MetronomeListener ml)
+    {
+       pipeline.removeListener(phase, ml);
+    }
+
+    /**
+     * Reset the statistics about the time between ticks
+     */
+    public synchronized void resetStatistics()
+    {
+       ticks        = 0;
+       intervalMean = 0.0;
+       intervalM2   = 0.0;
+       maxLateness  = 0;
+       coalesced    = 0;
+       dropped      = 0;
+    }
+
     /**
      * Reset the time
      *
@@ -205,27 +518,15 @@ public class Metronome implements Runnable
      */
     public void run()
     {
-       int       currentDelay;       
-       long      currentTick, drift;       
-
-       currentDelay = delay;       
-       if (adjusting) lastTick = System.currentTimeMillis();
+       prepare();
 
        while (keepRunning)
        {
           try
           {
-             timerThread.sleep(currentDelay);
-             time += currentDelay * multiplier;              
-             
-             if (adjusting) // Need to compensate for drift
-             {
-                currentTick = System.currentTimeMillis();
-                drift = (currentTick - lastTick) - currentDelay;       
-                currentDelay = (int)Math.max(0, delay-drift);
-                lastTick = currentTick;                
-             }
-             notifyListeners();
+             if (precise) waitUntil(deadline);
+             else         timerThread.sleep(currentDelay);
+             fire();
           }
           catch (InterruptedException ie)
           {
@@ -248,6 +549,69 @@ public class Metronome implements Runnable
        this.multiplier = multiplier;       
     }
 
+    /**
+     * Make this Metronome precise or not
+     *
+     * Note: This method should only be called when the
+     * Metronome is not running
+     *
+     * @param precise   true to make it precise; false otherwise
+     */
+    public void setPrecise(boolean precise)
+    {
+       this.precise = precise;       
+    }
+
+    /**
+     * Set the TickProfiler that records how long the ticks of this
+     * Metronome take to be handled (several Metronome objects can
+     * share one TickProfiler)
+     *
+     * @param profiler   The TickProfiler (or null to stop recording)
+     */
+    public void setProfiler(TickProfiler profiler)
+    {
+       this.profiler = profiler;       
+    }
+
+    /**
+     * Set the MetronomeScheduler this Metronome uses (rather than
+     * its own thread)
+     *
+     * Note: This method should only be called when the
+     * Metronome is not running
+     *
+     * @param scheduler   The MetronomeScheduler (or null to use its own thread)
+     */
+    public void setScheduler(MetronomeScheduler scheduler)
+    {
+       this.scheduler = scheduler;       
+    }
+
+    /**
+     * Set the spin margin (i.e., how long before a deadline a precise
+     * Metronome stops parking and starts yielding).  A larger margin
+     * uses more CPU time but is less sensitive to the granularity of
+     * the operating system's timer.
+     *
+     * @param micros   The margin (in microseconds)
+     */
+    public void setSpinMargin(int micros)
+    {
+       spinMargin = Math.max(0, micros) * 1000L;
+    }
+
+    /**
+     * Set the TickPolicy (i.e., what happens when a tick occurs
+     * while a dispatch is pending)
+     *
+     * @param policy   The TickPolicy
+     */
+    public synchronized void setTickPolicy(TickPolicy policy)
+    {
+       if (policy != null) this.policy = policy;
+    }
+
     /**
      * Set the current time
      *
@@ -266,7 +630,11 @@ public class Metronome implements Runnable
      */
     public void start()
     {
-       if (timerThread == null)
+       if (scheduler != null)
+       {
+          startScheduled();
+       }
+       else if (timerThread == null)
        {
           keepRunning = true;
           timerThread = new Thread(this);
@@ -274,6 +642,21 @@ public class Metronome implements Runnable
        }
     }
     
+    /**
+     * Start this Metronome using its MetronomeScheduler
+     */
+    private synchronized void startScheduled()
+    {
+       if (scheduledTick == null)
+       {
+          keepRunning   = true;
+          generation++;
+          prepare();
+          scheduledTick = scheduler.schedule(new ScheduledTick(generation),
+                                             timeUntilNextTick());
+       }
+    }
+
     /**
      * Stop this Metronome "immediately"
      */
@@ -281,11 +664,68 @@ public class Metronome implements Runnable
     {
        keepRunning = false;
        if (timerThread != null) timerThread.interrupt();       
+       stopScheduled();
+    }
+
+    /**
+     * Stop this Metronome (if it is using its MetronomeScheduler)
+     */
+    private synchronized void stopScheduled()
+    {
+       // Release a tick that is blocked in notifyListeners() and
+       // forget a tick that is waiting for the dispatcher
+       notifyAll();
+       deferredTick = null;
+
+       if (scheduledTick != null)
+       {
+          scheduledTick.cancel(false);
+          scheduledTick = null;
+       }
+    }
+
+    /**
+     * Get the amount of time until the next tick should be
+     * scheduled (a little before the deadline for a precise
+     * Metronome)
+     *
+     * @return   The time (in nanoseconds)
+     */
+    private long timeUntilNextTick()
+    {
+       if (precise) return deadline - spinMargin - System.nanoTime();
+       else         return currentDelay * 1000000L;
+    }
+
+    /**
+     * Wait until a deadline (parking until shortly before it
+     * and then yielding)
+     *
+     * @param deadline   The deadline (in terms of System.nanoTime())
+     * @throws InterruptedException if stop() is called
+     */
+    private void waitUntil(long deadline) throws InterruptedException
+    {
+       long      remaining;
+
+       remaining = deadline - System.nanoTime();
+       while (remaining > spinMargin)
+       {
+          LockSupport.parkNanos(remaining - spinMargin);
+          if (Thread.interrupted()) throw(new InterruptedException());
+          remaining = deadline - System.nanoTime();
+       }
+
+       while (System.nanoTime() < deadline)
+       {
+          Thread.yield();
+          if (Thread.interrupted()) throw(new InterruptedException());
+       }
     }
 
     /**
      * A MetronomeTickDispatcher is used by a Metronome to
-     * inform listeners of a tick.
+     * inform listeners of a tick (one TickPhase at a time).
      *
      * This class implements Runnable because its run()
      * method will be called in the GUI/event-dispatch thread.
@@ -294,6 +734,9 @@ public class Metronome implements Runnable
     {
         private MetronomeListener[]   listeners;
         private int                   time;
+        private long                  tickedAt;
+
+        private final TickPhase[]     phases = TickPhase.values();
         
         
         /**
@@ -304,13 +747,75 @@ public class Metronome implements Runnable
          */
         public void run()
         {
-           int    n;
+           int                   t;
+           long                  started;
+           MetronomeListener[]   l;
+           TickProfiler          p;
+
+           // Take the state and allow the next dispatch
+           synchronized(Metronome.this)
+           {
+              l       = listeners;
+              t       = time;
+              started = tickedAt;
+              pending = false;
+              Metronome.this.notifyAll();
+
+              // Reschedule a tick that was deferred (see ScheduledTick)
+              if (deferredTick != null)
+              {
+                 scheduledTick = scheduler.schedule(deferredTick, 0);
+                 deferredTick  = null;
+              }
+           }
            
-           n = listeners.length;           
-           for (int i=n-1; i>=0; i--)
+           p = profiler;
+           if (started == 0) p = null;
+           if (p != null) p.recordDispatchDelay(System.nanoTime() - started);
+
+           for (int phase=0; phase<phases.length; phase++)
+           {
+              if (phases[phase] == TickPhase.SIMULATE) notifyUnphased(l, t, p);
+
+              pipeline.dispatch(phases[phase], t, p);
+           }
+        }
+
+        /**
+         * Notify the listeners that were not added to a phase
+         * (in the REVERSE order in which they were added)
+         *
+         * @param l     The listeners
+         * @param t     The (relative) time of the tick
+         * @param p     The TickProfiler to record them in (or null)
+         */
+        private void notifyUnphased(MetronomeListener[] l, int t,
+                                    TickProfiler p)
+        {
+           int                   n;
+           long                  start, started;
+
+           n = l.length;           
+           if (p == null)
            {
-              if (listeners[i] != null) 
-                 listeners[i].handleTick(time);
+              for (int i=n-1; i>=0; i--)
+              {
+                 if (l[i] != null) l[i].handleTick(t);
+              }
+           }
+           else // Time each listener
+           {
+              start = System.nanoTime();
+              for (int i=n-1; i>=0; i--)
+              {
+                 if (l[i] != null) 
+                 {
+                    l[i].handleTick(t);
+                    started = start;
+                    start   = System.nanoTime();
+                    p.recordListener(l[i], start - started);
+                 }
+              }
            }
         }
         
@@ -320,12 +825,89 @@ public class Metronome implements Runnable
          *
          * @param listeners  The collection of MetronomeListener objects
          * @param time       The (relative) time of the tick
+         * @param tickedAt   The System.nanoTime() of the tick (or 0
+         *                   if it isn't being profiled)
          */
         public void setup(MetronomeListener[] listeners, 
-                          int time)
+                          int time, long tickedAt)
         {
            this.listeners = listeners;           
            this.time      = time;           
+           this.tickedAt  = tickedAt;           
+        }
+    }
+
+    /**
+     * A ScheduledTick is used by a Metronome that uses a
+     * MetronomeScheduler to handle one tick (and schedule the
+     * next one).
+     *
+     * This class implements Runnable because its run()
+     * method will be called in a timer thread of the
+     * MetronomeScheduler.
+     */
+    private class ScheduledTick implements Runnable
+    {
+        private int                   startedAt;
+
+        /**
+         * Explicit Value Constructor
+         *
+         * @param startedAt   The generation of the Metronome (i.e., 
+         *                    the number of times it has been started)
+         */
+        public ScheduledTick(int startedAt)
+        {
+           this.startedAt = startedAt;
+        }
+
+        /**
+         * Code to be executed in a timer thread
+         * (required by Runnable)
+         *
+         * Specifically, handle the tick and schedule the next one
+         */
+        public void run()
+        {
+           synchronized(Metronome.this)
+           {
+              // Ignore ticks from before the Metronome was stopped
+              if (!keepRunning || (startedAt != generation)) return;
+
+              // Don't hold a shared timer thread while the previous
+              // dispatch is pending (the dispatcher reschedules this
+              // tick when the dispatch starts)
+              if (pending && (policy == TickPolicy.BLOCK))
+              {
+                 deferredTick = this;
+                 return;
+              }
+           }
+
+           if (precise)
+           {
+              try
+              {
+                 waitUntil(deadline);
+              }
+              catch (InterruptedException ie)
+              {
+                 // The MetronomeScheduler was shut down
+                 return;
+              }
+
+              // stop() may have been called while waiting
+              if (!keepRunning) return;
+           }
+
+           fire();
+
+           synchronized(Metronome.this)
+           {
+              if (keepRunning && (startedAt == generation))
+                 scheduledTick = scheduler.schedule(this, 
+                                                    timeUntilNextTick());
+           }
         }
     }
 }
@@ -0,0 +1,115 @@
+package event;
+
+import java.util.concurrent.*;
+
+
+/**
+ * A MetronomeScheduler runs any number of Metronome objects on a
+ * small, shared pool of timer threads (rather than one thread
+ * per Metronome).
+ *
+ * The next tick of each Metronome is kept in a queue that is ordered
+ * by the time at which it is due, and each timer thread waits for
+ * the tick at the head of the queue.  When a tick is handled, the
+ * next tick of that Metronome is scheduled (using the same rules as
+ * a Metronome that has its own thread), so a Metronome behaves the
+ * same way whether or not it uses a MetronomeScheduler.
+ *
+ * The timer threads are daemon threads, so they never keep the
+ * application running.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class MetronomeScheduler
+{
+    private ScheduledThreadPoolExecutor      executor;
+
+    /**
+     * The number of timer threads used by default
+     */
+    public static final int                  DEFAULT_THREADS = 2;
+
+    private static MetronomeScheduler        instance;
+
+    /**
+     * Default Constructor
+     */
+    public MetronomeScheduler()
+    {
+       this(DEFAULT_THREADS);
+    }
+
+    /**
+     * Explicit Value Constructor
+     *
+     * @param threads   The number of timer threads
+     */
+    public MetronomeScheduler(int threads)
+    {
+       executor = new ScheduledThreadPoolExecutor(Math.max(1, threads),
+          new ThreadFactory()
+          {
+             private int    count = 0;
+
+             public synchronized Thread newThread(Runnable r)
+             {
+                Thread     thread;
+
+                count++;
+                thread = new Thread(r, "MetronomeScheduler-" + count);
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MAX_PRIORITY);
+
+                return thread;
+             }
+          });
+
+       // Don't keep stopped Metronome objects in the queue
+       executor.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the shared MetronomeScheduler
+     *
+     * @return   The MetronomeScheduler
+     */
+    public static synchronized MetronomeScheduler getInstance()
+    {
+       if (instance == null) instance = new MetronomeScheduler();
+
+       return instance;
+    }
+
+    /**
+     * Get the number of ticks that are waiting to be handled (i.e.,
+     * the number of Metronome objects that are running)
+     *
+     * @return   The number of ticks
+     */
+    public int getNumberOfScheduledTicks()
+    {
+       return executor.getQueue().size();
+    }
+
+    /**
+     * Schedule a tick
+     *
+     * @param tick     The code to execute when the tick is due
+     * @param nanos    The delay (in nanoseconds)
+     * @return         The ScheduledFuture (which can be used to cancel it)
+     */
+    ScheduledFuture<?> schedule(Runnable tick, long nanos)
+    {
+       return executor.schedule(tick, nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop all of the timer threads (after which this
+     * MetronomeScheduler can't be used)
+     */
+    public void shutdown()
+    {
+       executor.shutdownNow();
+    }
+}
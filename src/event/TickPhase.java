@@ -0,0 +1,38 @@
+package event;
+
+/**
+ * The phases of a tick, in the order in which the listeners that are
+ * registered for them are notified (see Metronome.addListener())
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public enum TickPhase
+{
+    /**
+     * Handle the input that arrived since the previous tick
+     */
+    INPUT,
+
+    /**
+     * Move and update things (the ordinary listeners of a Metronome
+     * are notified at the start of this phase)
+     */
+    SIMULATE,
+
+    /**
+     * Detect and respond to collisions (after everything has moved)
+     */
+    COLLIDE,
+
+    /**
+     * Remove things that were destroyed and dispatch the
+     * resulting events
+     */
+    CLEANUP,
+
+    /**
+     * Draw the results of the tick
+     */
+    RENDER
+}
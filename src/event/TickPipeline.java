@@ -0,0 +1,287 @@
+package event;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+
+/**
+ * A TickPipeline notifies MetronomeListener objects of a tick one
+ * TickPhase at a time (e.g., so that collisions are always detected
+ * after everything has moved, whatever order the listeners were
+ * added in).  Within a phase, listeners are notified in the order in
+ * which they are added.
+ *
+ * The listeners in a phase can also be notified in parallel (see
+ * setParallel()), in which case they are divided among the threads
+ * of a shared worker pool and the calling thread.  In either case,
+ * no listener in a phase is notified until every listener in the
+ * previous phase has returned.
+ *
+ * Note: Only listeners that are independent of each other (and
+ * don't use Swing) should be in a parallel phase.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class TickPipeline
+{
+    private ArrayList<ArrayList<MetronomeListener>>   listeners;
+    private boolean[]                                 parallel;
+    private volatile MetronomeListener[][]            copies;
+
+    private static final TickPhase[]                  PHASES = TickPhase.values();
+
+    private static ExecutorService                    workers;
+    private static int                                numberOfWorkers;
+
+    /**
+     * Default Constructor
+     */
+    public TickPipeline()
+    {
+       parallel  = new boolean[PHASES.length];
+       listeners = new ArrayList<ArrayList<MetronomeListener>>();
+       copies    = new MetronomeListener[PHASES.length][];
+       for (int p=0; p<PHASES.length; p++)
+       {
+          listeners.add(new ArrayList<MetronomeListener>());
+          copies[p] = new MetronomeListener[0];
+       }
+    }
+
+    /**
+     * Add a MetronomeListener to a phase
+     *
+     * @param phase   The TickPhase
+     * @param ml      The MetronomeListener to add
+     */
+    public synchronized void addListener(TickPhase phase,
+                                         MetronomeListener ml)
+    {
+       listeners.get(phase.ordinal()).add(ml);
+       copyListeners(phase);
+    }
+
+    /**
+     * Copy the collection of listeners in a phase
+     *
+     * The copy is used while dispatching to avoid concurrent
+     * modification problems.
+     *
+     * @param phase   The TickPhase
+     */
+    private void copyListeners(TickPhase phase)
+    {
+       ArrayList<MetronomeListener>   list;
+       MetronomeListener[][]          updated;
+
+       list    = listeners.get(phase.ordinal());
+       updated = copies.clone();
+       updated[phase.ordinal()] = list.toArray(new MetronomeListener[list.size()]);
+       copies  = updated;
+    }
+
+    /**
+     * Notify the listeners in a phase of a tick (returning after
+     * they have all been notified)
+     *
+     * @param phase      The TickPhase
+     * @param time       The (relative) time of the tick
+     * @param profiler   The TickProfiler to record the listeners in (or null)
+     */
+    void dispatch(TickPhase phase, int time, TickProfiler profiler)
+    {
+       MetronomeListener[]     l;
+
+       l = copies[phase.ordinal()];
+       if (l.length == 0) return;
+
+       if ((l.length > 1) && isParallel(phase))
+          dispatchInParallel(l, time, profiler);
+       else
+          notifyListeners(l, 0, l.length, time, profiler);
+    }
+
+    /**
+     * Notify listeners of a tick using the worker pool (returning
+     * after they have all been notified)
+     *
+     * @param l          The listeners
+     * @param time       The (relative) time of the tick
+     * @param profiler   The TickProfiler to record the listeners in (or null)
+     */
+    private void dispatchInParallel(final MetronomeListener[] l,
+                                    final int time,
+                                    final TickProfiler profiler)
+    {
+       boolean                        interrupted;
+       ExecutorService                pool;
+       int                            slices;
+       ArrayList<Future<?>>           futures;
+       Throwable                      failure;
+
+       pool    = getWorkers();
+       slices  = Math.min(l.length, numberOfWorkers + 1);
+       futures = new ArrayList<Future<?>>();
+
+       // The calling thread notifies the first slice itself
+       for (int s=1; s<slices; s++)
+       {
+          final int    from = (int)((long)l.length * s / slices);
+          final int    to   = (int)((long)l.length * (s+1) / slices);
+
+          futures.add(pool.submit(new Runnable()
+             {
+                public void run()
+                {
+                   notifyListeners(l, from, to, time, profiler);
+                }
+             }));
+       }
+
+       failure = null;
+       try
+       {
+          notifyListeners(l, 0, l.length / slices, time, profiler);
+       }
+       catch (RuntimeException | Error e)
+       {
+          failure = e;
+       }
+
+       // The barrier (wait for the other slices)
+       interrupted = false;
+       for (int i=0; i<futures.size(); i++)
+       {
+          try
+          {
+             futures.get(i).get();
+          }
+          catch (InterruptedException ie)
+          {
+             interrupted = true;
+             i--;
+          }
+          catch (ExecutionException ee)
+          {
+             if (failure == null) failure = ee.getCause();
+          }
+       }
+       if (interrupted) Thread.currentThread().interrupt();
+
+       if (failure instanceof RuntimeException) throw((RuntimeException)failure);
+       if (failure instanceof Error)            throw((Error)failure);
+    }
+
+    /**
+     * Get the number of listeners in a phase
+     *
+     * @param phase   The TickPhase
+     * @return        The number of listeners
+     */
+    public int getNumberOfListeners(TickPhase phase)
+    {
+       return copies[phase.ordinal()].length;
+    }
+
+    /**
+     * Get the shared worker pool (creating it if necessary)
+     *
+     * @return   The worker pool
+     */
+    private static synchronized ExecutorService getWorkers()
+    {
+       if (workers == null)
+       {
+          numberOfWorkers = Math.max(1,
+                               Runtime.getRuntime().availableProcessors() - 1);
+          workers = Executors.newFixedThreadPool(numberOfWorkers,
+             new ThreadFactory()
+             {
+                private int    count = 0;
+
+                public synchronized Thread newThread(Runnable r)
+                {
+                   Thread     thread;
+
+                   count++;
+                   thread = new Thread(r, "TickPipeline-" + count);
+                   thread.setDaemon(true);
+
+                   return thread;
+                }
+             });
+       }
+
+       return workers;
+    }
+
+    /**
+     * Are the listeners in a phase notified in parallel?
+     *
+     * @param phase   The TickPhase
+     * @return        true if they are; false otherwise
+     */
+    public synchronized boolean isParallel(TickPhase phase)
+    {
+       return parallel[phase.ordinal()];
+    }
+
+    /**
+     * Notify some of the listeners of a tick
+     *
+     * @param l          The listeners
+     * @param from       The index of the first listener to notify
+     * @param to         The index after the last listener to notify
+     * @param time       The (relative) time of the tick
+     * @param profiler   The TickProfiler to record the listeners in (or null)
+     */
+    private static void notifyListeners(MetronomeListener[] l, int from,
+                                        int to, int time, TickProfiler profiler)
+    {
+       long        start, started;
+
+       if (profiler == null)
+       {
+          for (int i=from; i<to; i++) l[i].handleTick(time);
+       }
+       else // Time each listener
+       {
+          start = System.nanoTime();
+          for (int i=from; i<to; i++)
+          {
+             l[i].handleTick(time);
+             started = start;
+             start   = System.nanoTime();
+             profiler.recordListener(l[i], start - started);
+          }
+       }
+    }
+
+    /**
+     * Remove a MetronomeListener from a phase
+     *
+     * @param phase   The TickPhase
+     * @param ml      The MetronomeListener to remove
+     */
+    public synchronized void removeListener(TickPhase phase,
+                                            MetronomeListener ml)
+    {
+       listeners.get(phase.ordinal()).remove(ml);
+       copyListeners(phase);
+    }
+
+    /**
+     * Notify the listeners in a phase in parallel or not
+     *
+     * Note: The RENDER phase should never be parallel, since
+     * rendering must be done in the GUI/event-dispatch thread.
+     *
+     * @param phase      The TickPhase
+     * @param parallel   true to notify them in parallel; false otherwise
+     */
+    public synchronized void setParallel(TickPhase phase, boolean parallel)
+    {
+       this.parallel[phase.ordinal()] = parallel;
+    }
+}
@@ -0,0 +1,34 @@
+package event;
+
+/**
+ * The ways in which a Metronome can handle a tick when the
+ * dispatch of the previous tick (in the GUI/event-dispatch thread)
+ * hasn't started yet.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public enum TickPolicy
+{
+    /**
+     * The pending dispatch reports the time of the new tick instead
+     * (so the listeners are informed of the latest time once, rather
+     * than of each time in a burst).
+     */
+    COALESCE,
+
+    /**
+     * The new tick is discarded (so the pending dispatch reports the
+     * time of the tick that was originally dispatched).
+     */
+    DROP,
+
+    /**
+     * The new tick waits until the pending dispatch starts (so
+     * every tick is dispatched, but the Metronome slows down when the
+     * GUI/event-dispatch thread falls behind).  A Metronome that uses
+     * a MetronomeScheduler doesn't hold one of its timer threads while
+     * it waits; the tick is rescheduled when the dispatch starts.
+     */
+    BLOCK
+}
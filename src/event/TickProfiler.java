@@ -0,0 +1,258 @@
+package event;
+
+import java.lang.management.*;
+import java.util.*;
+import javax.management.*;
+
+
+/**
+ * A TickProfiler records how long the ticks of one or more Metronome
+ * objects take to be handled (see Metronome.setProfiler()).
+ *
+ * It records the delay between each tick and the start of its
+ * dispatch in the GUI/event-dispatch thread, and the time spent in
+ * handleTick() by each MetronomeListener.  The times spent by the
+ * listeners are aggregated by class (e.g., all of the sprites of one
+ * kind), so it is easy to see which kind of listener is using up the
+ * time between ticks.
+ *
+ * The recorded durations can be obtained as LatencyHistogram objects
+ * (which are snapshots) or, after the TickProfiler has been
+ * registered, viewed in a JMX console.
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public class TickProfiler implements TickProfilerMBean
+{
+    private HashMap<Class<?>, LatencyHistogram>   durations;
+    private LatencyHistogram                      delays;
+    private ObjectName                            objectName;
+
+    /**
+     * The JMX domain that TickProfiler objects are registered in
+     */
+    public static final String                    DOMAIN = "event";
+
+    /**
+     * Default Constructor
+     */
+    public TickProfiler()
+    {
+       delays    = new LatencyHistogram();
+       durations = new HashMap<Class<?>, LatencyHistogram>();
+    }
+
+    /**
+     * Get the delays between ticks and the start of their dispatches
+     *
+     * @return   A snapshot of the delays
+     */
+    public synchronized LatencyHistogram getDispatchDelays()
+    {
+       return delays.copy();
+    }
+
+    /**
+     * Get a summary of the delays between ticks and the start of
+     * their dispatches
+     * (required by TickProfilerMBean)
+     *
+     * @return   The summary
+     */
+    public String getDispatchStatistics()
+    {
+       return summarize("dispatch", getDispatchDelays());
+    }
+
+    /**
+     * Get the time spent in handleTick() by each class of
+     * MetronomeListener
+     *
+     * @return   A snapshot of the durations (keyed by class name)
+     */
+    public synchronized Map<String, LatencyHistogram> getListenerDurations()
+    {
+       TreeMap<String, LatencyHistogram>   result;
+
+       result = new TreeMap<String, LatencyHistogram>();
+       for (Map.Entry<Class<?>, LatencyHistogram> entry: durations.entrySet())
+       {
+          result.put(entry.getKey().getName(), entry.getValue().copy());
+       }
+
+       return result;
+    }
+
+    /**
+     * Get a summary of the time spent in handleTick() for each
+     * class of MetronomeListener (longest total time first)
+     * (required by TickProfilerMBean)
+     *
+     * @return   One summary per class
+     */
+    public String[] getListenerStatistics()
+    {
+       ArrayList<Map.Entry<String, LatencyHistogram>>   entries;
+       String[]                                         result;
+
+       entries = new ArrayList<Map.Entry<String, LatencyHistogram>>(
+                                           getListenerDurations().entrySet());
+       Collections.sort(entries,
+          new Comparator<Map.Entry<String, LatencyHistogram>>()
+          {
+             public int compare(Map.Entry<String, LatencyHistogram> a,
+                                Map.Entry<String, LatencyHistogram> b)
+             {
+                return Double.compare(total(b.getValue()), total(a.getValue()));
+             }
+          });
+
+       result = new String[entries.size()];
+       for (int i=0; i<result.length; i++)
+       {
+          result[i] = summarize(entries.get(i).getKey(),
+                                entries.get(i).getValue());
+       }
+
+       return result;
+    }
+
+    /**
+     * Get the longest delay between a tick and the start of its dispatch
+     * (required by TickProfilerMBean)
+     *
+     * @return   The delay (in milliseconds)
+     */
+    public synchronized double getMaximumDispatchDelay()
+    {
+       return delays.getMaximum();
+    }
+
+    /**
+     * Get the mean delay between a tick and the start of its dispatch
+     * (required by TickProfilerMBean)
+     *
+     * @return   The delay (in milliseconds)
+     */
+    public synchronized double getMeanDispatchDelay()
+    {
+       return delays.getMean();
+    }
+
+    /**
+     * Get the number of dispatches that have been recorded
+     * (required by TickProfilerMBean)
+     *
+     * @return   The number of dispatches
+     */
+    public synchronized long getNumberOfDispatches()
+    {
+       return delays.getCount();
+    }
+
+    /**
+     * Record the delay between a tick and the start of its dispatch
+     *
+     * @param nanos   The delay (in nanoseconds)
+     */
+    synchronized void recordDispatchDelay(long nanos)
+    {
+       delays.record(nanos);
+    }
+
+    /**
+     * Record the time spent in handleTick() by a MetronomeListener
+     *
+     * @param listener   The MetronomeListener
+     * @param nanos      The time (in nanoseconds)
+     */
+    synchronized void recordListener(MetronomeListener listener, long nanos)
+    {
+       LatencyHistogram     histogram;
+
+       histogram = durations.get(listener.getClass());
+       if (histogram == null)
+       {
+          histogram = new LatencyHistogram();
+          durations.put(listener.getClass(), histogram);
+       }
+       histogram.record(nanos);
+    }
+
+    /**
+     * Register this TickProfiler with the platform MBeanServer (so
+     * that it can be viewed in a JMX console)
+     *
+     * @param name   The name to register it under (e.g., "game")
+     * @return       The ObjectName it was registered with
+     * @throws JMException if it can't be registered
+     */
+    public synchronized ObjectName register(String name) throws JMException
+    {
+       ObjectName        candidate;
+
+       candidate = new ObjectName(DOMAIN + ":type=TickProfiler,name="
+                                  + ObjectName.quote(name));
+
+       ManagementFactory.getPlatformMBeanServer().registerMBean(this,
+                                                                candidate);
+       objectName = candidate;
+
+       return objectName;
+    }
+
+    /**
+     * Remove all of the recorded durations
+     * (required by TickProfilerMBean)
+     */
+    public synchronized void reset()
+    {
+       delays.reset();
+       durations.clear();
+    }
+
+    /**
+     * Create a summary of a LatencyHistogram
+     *
+     * @param name        The name of what was recorded
+     * @param histogram   The LatencyHistogram
+     * @return            The summary
+     */
+    private static String summarize(String name, LatencyHistogram histogram)
+    {
+       return String.format("%s: n=%d mean=%.3fms p50=%.3fms p99=%.3fms "
+                            + "p99.9=%.3fms max=%.3fms",
+                            name, histogram.getCount(), histogram.getMean(),
+                            histogram.getValueAtPercentile(50.0),
+                            histogram.getValueAtPercentile(99.0),
+                            histogram.getValueAtPercentile(99.9),
+                            histogram.getMaximum());
+    }
+
+    /**
+     * Get the total of the durations in a LatencyHistogram
+     *
+     * @param histogram   The LatencyHistogram
+     * @return            The total (in milliseconds)
+     */
+    private static double total(LatencyHistogram histogram)
+    {
+       return histogram.getMean() * histogram.getCount();
+    }
+
+    /**
+     * Unregister this TickProfiler from the platform MBeanServer
+     * (if it has been registered)
+     *
+     * @throws JMException if it can't be unregistered
+     */
+    public synchronized void unregister() throws JMException
+    {
+       if (objectName != null)
+       {
+          ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+          objectName = null;
+       }
+    }
+}
@@ -0,0 +1,53 @@
+package event;
+
+/**
+ * The management interface of a TickProfiler (so that it can be
+ * viewed in a JMX console)
+ *
+ * @author  Zachary Bolan
+ * @version 1.0
+ */
+public interface TickProfilerMBean
+{
+    /**
+     * Get the longest delay between a tick and the start of its dispatch
+     *
+     * @return   The delay (in milliseconds)
+     */
+    public abstract double getMaximumDispatchDelay();
+
+    /**
+     * Get the mean delay between a tick and the start of its dispatch
+     *
+     * @return   The delay (in milliseconds)
+     */
+    public abstract double getMeanDispatchDelay();
+
+    /**
+     * Get a summary of the delays between ticks and the start of
+     * their dispatches
+     *
+     * @return   The summary
+     */
+    public abstract String getDispatchStatistics();
+
+    /**
+     * Get a summary of the time spent in handleTick() for each
+     * class of MetronomeListener (longest total time first)
+     *
+     * @return   One summary per class
+     */
+    public abstract String[] getListenerStatistics();
+
+    /**
+     * Get the number of dispatches that have been recorded
+     *
+     * @return   The number of dispatches
+     */
+    public abstract long getNumberOfDispatches();
+
+    /**
+     * Remove all of the recorded durations
+     */
+    public abstract void reset();
+}
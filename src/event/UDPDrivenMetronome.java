@@ -65,6 +65,18 @@ public class UDPDrivenMetronome extends Metronome
        super.setMultiplier(multiplier);       
     }
 
+    /**
+     * Set the MetronomeScheduler this Metronome uses
+     *
+     * Note: This method does nothing since the ticks of a 
+     * UDPDrivenMetronome are driven by UDP messages
+     *
+     * @param scheduler   The MetronomeScheduler (ignored)
+     */
+    public void setScheduler(MetronomeScheduler scheduler)
+    {
+    }
+
     /**
      * Set the current time
      *
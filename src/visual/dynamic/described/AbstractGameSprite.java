@@ -7,7 +7,6 @@ import java.awt.geom.*;
 import java.util.*;
 import java.util.List;
 
-import auditory.sampled.SoundFactory;
 import visual.statik.TransformableContent;
 
 /**
@@ -27,16 +26,15 @@ public abstract class AbstractGameSprite extends RuleBasedSprite
 	double								x, y, dX, dY;
 	private ResourceFinder				finder;
     protected LinkedList<Sprite>        antagonists; 
-    protected SoundFactory				sf;
     protected TransformableContent      content;
     int									speed, lifespan;
     final int							TIME_TO_DIE = 1000;
 
 
     /**
-     * Explicit Value Constructor. Must include a relevant ResourceFinder
-     * in order to play audio controlled by this AbstractGameSprite (such as
-     * death or birth sound effects).
+     * Explicit Value Constructor. Sound effects (such as death or birth
+     * sound effects) are posted to the shared SoundEventBus rather than
+     * played by this AbstractGameSprite.
      *
      * @param content   The static visual content
      */
@@ -49,7 +47,6 @@ public abstract class AbstractGameSprite extends RuleBasedSprite
        setVisible(true);
 	   isAvailable = false;
 	   lifespan = 0;
-	   sf = new SoundFactory(finder);
     }
 
     /**
@@ -4,6 +4,7 @@ import io.ResourceFinder;
 
 import java.awt.geom.*;
 
+import auditory.sampled.SoundEventBus;
 import visual.statik.TransformableContent;
 
 /**
@@ -45,7 +46,7 @@ public class BossBernstein extends AbstractGameSprite
     				setSpeed(0);
     				setVisible(false);
         			isDestroyed = true;
-        			sf.playAudio("wilhelmScream.wav");
+        			SoundEventBus.getInstance().post("wilhelmScream.wav");
         			reset();
     			}
     			
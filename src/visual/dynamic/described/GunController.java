@@ -10,7 +10,7 @@ import javax.swing.SwingUtilities;
 
 import auditory.sampled.BufferedSound;
 import auditory.sampled.BufferedSoundFactory;
-import auditory.sampled.SoundFactory;
+import auditory.sampled.SoundEventBus;
 
 
 /**
@@ -29,7 +29,6 @@ public class GunController
 	private float					mouseX, mouseY;
 	private List<GunObserver>		observers;
 	public ResourceFinder			finder;
-	SoundFactory					sf;
 		
 
     /**
@@ -43,7 +42,6 @@ public class GunController
     	this.finder = finder;
     	this.af = af;
     	this.observers = new ArrayList<>();
-    	sf = new SoundFactory(finder);
     }
 
     /**
@@ -57,7 +55,7 @@ public class GunController
     public AbstractGameSprite createBullet(ResourceFinder finder, 
     							double x, double y) 
     {
-    	sf.playAudio("lazor.wav");
+    	SoundEventBus.getInstance().post("lazor.wav");
     	return af.createBullet(finder, x, y, mouseX, mouseY);
     }
     